@@ -30,6 +30,8 @@ import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.client.GuiManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.Experience;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataCapability;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.NetworkHandler;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.utils.StopModReposts;
 
@@ -45,6 +47,8 @@ public class DynamicPlayerProgressionAndPlayerDifficulty {
     StopModReposts.checkStopModReposts();
 
     modEventBus.addListener(NetworkHandler::registerNetworkHandler);
+    modEventBus.addListener(Experience::handleModConfigReloadEvent);
+    modEventBus.addListener(PlayerDataCapability::handleRegisterCapabilitiesEvent);
 
     forgeEventBus.addListener(ServerSetup::handleServerStartingEvent);
 
@@ -34,15 +34,21 @@ import net.minecraftforge.eventbus.api.Event.Result;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataManager;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClass;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClassData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item.DurabilityMode;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item.WeaponAdjustmentManager;
 
 @EventBusSubscriber
 public class BlockBreakManager {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
   protected BlockBreakManager() {}
 
   @SubscribeEvent
@@ -61,7 +67,16 @@ public class BlockBreakManager {
           BlockState blockState = event.getState();
           log.debug("[Block Damage {}] {} destroyed {} with {}", weaponClass, serverPlayer,
               blockState, handItem);
-          PlayerDataManager.updatePlayer(serverPlayer);
+          PlayerDataManager.scheduleUpdatePlayer(serverPlayer, handItem);
+
+          // Durability adjustments for blocks which will cause wear on the item.
+          PlayerData playerData = PlayerDataManager.getPlayer(serverPlayer);
+          if (playerData != null
+              && COMMON.weaponClassDurabilityMode.get() == DurabilityMode.PROBABILISTIC
+              && blockState.getDestroySpeed(event.getLevel(), event.getPos()) != 0.0f) {
+            WeaponAdjustmentManager.adjustItemDurability(serverPlayer, playerData, handItemStack,
+                weaponClass);
+          }
         }
       }
     }
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.client;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+import net.minecraftforge.server.ServerLifecycleHooks;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClassData;
+
+@EventBusSubscriber(value = Dist.CLIENT)
+public class ClientConnectionManager {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  protected ClientConnectionManager() {}
+
+  @SubscribeEvent
+  public static void handleLoggingOutEvent(ClientPlayerNetworkEvent.LoggingOut event) {
+    // The weapon class mapping of a remote server is only valid for this connection, the mapping
+    // of the integrated server is shared with the server and must be kept.
+    if (ServerLifecycleHooks.getCurrentServer() != null) {
+      return;
+    }
+    log.debug("Resetting weapon class mapping after disconnect ...");
+    WeaponClassData.resetWeaponClasses();
+  }
+
+}
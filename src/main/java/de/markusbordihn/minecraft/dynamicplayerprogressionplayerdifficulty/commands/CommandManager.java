@@ -47,6 +47,7 @@ public class CommandManager {
     // @formatter:off
         .then(ItemsCommand.register())
         .then(LevelCommand.register())
+        .then(MetricsCommand.register())
         .then(StatsCommand.register())
       // @formatter:on
     );
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.commands;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import io.netty.buffer.Unpooled;
+
+import net.minecraft.Util;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerRecordWriter;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerServerData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerServerDataClientSync;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item.WeaponAdjustmentManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.NetworkHandler;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.PlayerDataCodec;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.PlayerRecordStorageBenchmark;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.SharedPlayerRecordStorage;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.StorageBackend;
+
+public class MetricsCommand extends CustomCommand {
+  private static final MetricsCommand command = new MetricsCommand();
+  private static final int CODEC_ITERATIONS = 1000;
+
+  public static ArgumentBuilder<CommandSourceStack, ?> register() {
+    return Commands.literal("metrics").requires(cs -> cs.hasPermission(2)).executes(command)
+        .then(Commands.literal("validate").executes(command::runValidate))
+        .then(Commands.literal("codec").executes(command::runCodec))
+        .then(Commands.literal("storage").executes(command::runStorage));
+  }
+
+  @Override
+  public int run(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+    sendFeedback(context,
+        String.format("Player updates: %s requested, %s processed, %s coalesced, %s dropped",
+            PlayerDataManager.getUpdatesRequested(), PlayerDataManager.getUpdatesProcessed(),
+            PlayerDataManager.getUpdatesCoalesced(), PlayerDataManager.getUpdatesDropped()));
+    long statsTrackerMemoryUsage = 0;
+    for (PlayerData playerData : PlayerDataManager.getPlayerMap().values()) {
+      statsTrackerMemoryUsage += playerData.getEstimatedStatsTrackerMemoryUsage();
+    }
+    int numberOfPlayers = PlayerDataManager.getPlayerMap().size();
+    statsTrackerMemoryUsage = numberOfPlayers > 0 ? statsTrackerMemoryUsage / numberOfPlayers : 0;
+    sendFeedback(context, String.format(
+        "Player data: %s players (%s stored), ~%s bytes per player "
+            + "(stats tracker %s bytes, weapon classes %s bytes, %s bytes as EnumMaps)",
+        numberOfPlayers, PlayerServerData.getNumberOfPlayerRecords(),
+        PlayerData.getEstimatedMemoryUsage() + statsTrackerMemoryUsage, statsTrackerMemoryUsage,
+        PlayerData.getEstimatedWeaponClassMemoryUsage(),
+        PlayerData.getEstimatedWeaponClassEnumMapMemoryUsage()));
+    sendFeedback(context,
+        String.format(
+            "Player data packets: %s skipped by sync policy, %s queued, %s sent, %s pending",
+            PlayerServerDataClientSync.getSyncsSkipped(), NetworkHandler.getPlayerDataQueued(),
+            NetworkHandler.getPlayerDataSent(), NetworkHandler.getPlayerDataPending()));
+    sendFeedback(context, String.format(
+        "Player records: %s queued, %s written in %s batches, %s failed, "
+            + "write latency avg %sµs max %sµs",
+        PlayerRecordWriter.getQueueDepth(), PlayerRecordWriter.getRecordsWritten(),
+        PlayerRecordWriter.getBatchesWritten(), PlayerRecordWriter.getRecordsFailed(),
+        PlayerRecordWriter.getAverageWriteLatency(), PlayerRecordWriter.getMaxWriteLatency()));
+    if (PlayerRecordWriter.getStorage() instanceof SharedPlayerRecordStorage sharedStorage) {
+      sendFeedback(context,
+          String.format("Shared player records: %s cache hits, %s cache misses",
+              sharedStorage.getCacheHits(), sharedStorage.getCacheMisses()));
+    }
+    sendFeedback(context,
+        String.format("Durability tracking: %s item stacks, %s evicted",
+            WeaponAdjustmentManager.getNumberOfDurabilityStates(),
+            WeaponAdjustmentManager.getNumberOfEvictedDurabilityStates()));
+    return 0;
+  }
+
+  public int runValidate(CommandContext<CommandSourceStack> context)
+      throws CommandSyntaxException {
+    ServerPlayer player = context.getSource().getPlayerOrException();
+    PlayerData playerData = PlayerDataManager.getPlayer(player);
+    if (playerData == null) {
+      sendFeedback(context, "No player data found for " + player.getName().getString());
+      return 0;
+    }
+    int differences = playerData.validateStats();
+    sendFeedback(context, String.format(
+        "Validated incremental stats for %s against full resync: %s difference(s)",
+        player.getName().getString(), differences));
+    return 0;
+  }
+
+  /** Compares the binary player data codec with the former NBT encoding for the own data. */
+  public int runCodec(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+    ServerPlayer player = context.getSource().getPlayerOrException();
+    CompoundTag data =
+        PlayerServerDataClientSync.exportPlayerData(PlayerDataManager.getPlayer(player));
+    if (data.isEmpty()) {
+      sendFeedback(context, "No player data found for " + player.getName().getString());
+      return 0;
+    }
+    String playerUUID = player.getUUID().toString();
+    FriendlyByteBuf nbtBuffer = new FriendlyByteBuf(Unpooled.buffer());
+    FriendlyByteBuf codecBuffer = new FriendlyByteBuf(Unpooled.buffer());
+
+    // NBT encoding with UUID string, like the former player data message.
+    long nbtStartTime = System.nanoTime();
+    int nbtBytes = 0;
+    for (int i = 0; i < CODEC_ITERATIONS; i++) {
+      nbtBuffer.clear();
+      nbtBuffer.writeUtf(playerUUID);
+      nbtBuffer.writeNbt(data);
+      nbtBytes = nbtBuffer.readableBytes();
+      nbtBuffer.readUtf();
+      nbtBuffer.readNbt();
+    }
+    long nbtTime = System.nanoTime() - nbtStartTime;
+
+    // Binary player data codec.
+    long codecStartTime = System.nanoTime();
+    int codecBytes = 0;
+    for (int i = 0; i < CODEC_ITERATIONS; i++) {
+      codecBuffer.clear();
+      PlayerDataCodec.encode(data, codecBuffer);
+      codecBytes = codecBuffer.readableBytes();
+      PlayerDataCodec.decode(codecBuffer);
+    }
+    long codecTime = System.nanoTime() - codecStartTime;
+
+    nbtBuffer.release();
+    codecBuffer.release();
+    sendFeedback(context,
+        String.format(
+            "Player data packet (%s runs): NBT %s bytes in %s µs, codec %s bytes in %s µs",
+            CODEC_ITERATIONS, nbtBytes, nbtTime / CODEC_ITERATIONS / 1000.0, codecBytes,
+            codecTime / CODEC_ITERATIONS / 1000.0));
+    return 0;
+  }
+
+  public int runStorage(CommandContext<CommandSourceStack> context) {
+    CommandSourceStack source = context.getSource();
+    MinecraftServer server = source.getServer();
+    sendFeedback(context,
+        String.format("Running storage benchmark with %s synthetic players in the background ...",
+            PlayerRecordStorageBenchmark.DEFAULT_NUMBER_OF_PLAYERS));
+    CompletableFuture.runAsync(() -> {
+      for (StorageBackend storageBackend : StorageBackend.values()) {
+        String result = PlayerRecordStorageBenchmark.run(storageBackend,
+            PlayerRecordStorageBenchmark.DEFAULT_NUMBER_OF_PLAYERS);
+        log.info("[Storage Benchmark] {}", result);
+        server.execute(() -> source.sendSuccess(Component.literal(result), false));
+      }
+    }, Util.backgroundExecutor());
+    return 0;
+  }
+
+}
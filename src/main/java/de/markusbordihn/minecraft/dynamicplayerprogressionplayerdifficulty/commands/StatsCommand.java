@@ -19,6 +19,7 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.commands;
 
+import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.builder.ArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
@@ -26,6 +27,7 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.minecraft.ChatFormatting;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.GameProfileArgument;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.Style;
 import net.minecraft.server.level.ServerPlayer;
@@ -40,7 +42,9 @@ public class StatsCommand extends CustomCommand {
   private static final StatsCommand command = new StatsCommand();
 
   public static ArgumentBuilder<CommandSourceStack, ?> register() {
-    return Commands.literal("stats").requires(cs -> cs.hasPermission(0)).executes(command);
+    return Commands.literal("stats").requires(cs -> cs.hasPermission(0)).executes(command)
+        .then(Commands.argument("player", GameProfileArgument.gameProfile())
+            .requires(cs -> cs.hasPermission(2)).executes(command::runPlayer));
   }
 
   @Override
@@ -50,8 +54,32 @@ public class StatsCommand extends CustomCommand {
 
     // Update stats to make sure we should current values
     playerData.updateStats();
-    sendFeedback(context,
-        Component.translatable(Constants.STATS_CMD_TEXT_PREFIX, player.getName().getString()));
+    showStats(context, player.getName().getString(), playerData);
+    return 0;
+  }
+
+  public int runPlayer(CommandContext<CommandSourceStack> context) throws CommandSyntaxException {
+    for (GameProfile gameProfile : GameProfileArgument.getGameProfiles(context, "player")) {
+      // Offline players are using their stored player record.
+      ServerPlayer player =
+          context.getSource().getServer().getPlayerList().getPlayer(gameProfile.getId());
+      PlayerData playerData = player != null ? PlayerDataManager.getPlayer(player)
+          : PlayerDataManager.getOrLoadPlayer(gameProfile.getId());
+      if (playerData == null) {
+        sendFeedback(context, String.format("No player data found for %s", gameProfile.getName()));
+        continue;
+      }
+      if (player != null) {
+        playerData.updateStats();
+      }
+      showStats(context, gameProfile.getName(), playerData);
+    }
+    return 0;
+  }
+
+  private static void showStats(CommandContext<CommandSourceStack> context, String playerName,
+      PlayerData playerData) {
+    sendFeedback(context, Component.translatable(Constants.STATS_CMD_TEXT_PREFIX, playerName));
 
     // General
     sendFeedback(context,
@@ -96,8 +124,6 @@ public class StatsCommand extends CustomCommand {
               .setStyle(Style.EMPTY.withColor(
                   durabilityAdjustment > 0 ? ChatFormatting.GREEN : ChatFormatting.GRAY))));
     }
-
-    return 0;
   }
 
 }
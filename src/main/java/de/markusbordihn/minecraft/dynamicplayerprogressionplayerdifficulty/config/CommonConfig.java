@@ -33,6 +33,9 @@ import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.config.ModConfig;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.SyncPolicy;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item.DurabilityMode;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.StorageBackend;
 
 public class CommonConfig {
 
@@ -91,6 +94,20 @@ public class CommonConfig {
     public final ForgeConfigSpec.IntValue levelFactorItems;
     public final ForgeConfigSpec.IntValue levelExperienceDeathPenalty;
     public final ForgeConfigSpec.IntValue levelExperienceDeathPenaltyItems;
+    public final ForgeConfigSpec.IntValue levelUpdateInterval;
+    public final ForgeConfigSpec.IntValue levelResyncInterval;
+
+    public final ForgeConfigSpec.IntValue syncMaxLatency;
+    public final ForgeConfigSpec.EnumValue<SyncPolicy> syncPolicy;
+    public final ForgeConfigSpec.IntValue syncExperienceQuantum;
+    public final ForgeConfigSpec.IntValue syncKeepAliveInterval;
+    public final ForgeConfigSpec.BooleanValue syncClientDerivation;
+
+    public final ForgeConfigSpec.EnumValue<StorageBackend> storageBackend;
+    public final ForgeConfigSpec.ConfigValue<String> storageJdbcUrl;
+    public final ForgeConfigSpec.IntValue storageLogCompactionRatio;
+    public final ForgeConfigSpec.ConfigValue<String> storageSharedDirectory;
+    public final ForgeConfigSpec.ConfigValue<String> storageServerSlot;
 
     public final ForgeConfigSpec.IntValue dealtDamageIncrease;
     public final ForgeConfigSpec.IntValue dealtDamageReduction;
@@ -102,6 +119,9 @@ public class CommonConfig {
 
     public final ForgeConfigSpec.ConfigValue<List<String>> weaponClassIgnoredItems;
     public final ForgeConfigSpec.BooleanValue weaponClassLevelUpMessage;
+    public final ForgeConfigSpec.BooleanValue weaponClassParallelMapping;
+    public final ForgeConfigSpec.BooleanValue weaponClassMappingCache;
+    public final ForgeConfigSpec.EnumValue<DurabilityMode> weaponClassDurabilityMode;
 
     public final ForgeConfigSpec.ConfigValue<List<String>> axeItems;
     public final ForgeConfigSpec.IntValue axeItemDamageIncrease;
@@ -239,6 +259,48 @@ public class CommonConfig {
       levelExperienceDeathPenaltyItems =
           builder.comment("Experience penalty for each death for items (0 = disabled)")
               .defineInRange("levelExperienceDeathPenaltyItems", 32, 0, 1000);
+      levelUpdateInterval = builder.comment(
+          "Interval in ticks to batch player stats updates after kills and block breaks (0 = immediately)")
+          .defineInRange("levelUpdateInterval", 10, 0, 200);
+      levelResyncInterval = builder.comment(
+          "Interval in seconds for a full resync of all player stats, which covers item usage without any event (0 = disabled)")
+          .defineInRange("levelResyncInterval", 300, 0, 3600);
+      builder.pop();
+
+      builder.push("Client Sync");
+      syncMaxLatency = builder.comment(
+          "Max. latency in ticks to batch player data packets to the client (0 = immediately)")
+          .defineInRange("syncMaxLatency", 5, 0, 100);
+      syncPolicy = builder.comment(
+          "Sync policy for player data: ALWAYS, LEVEL_OR_ADJUSTMENT (only level, adjustment or penalty changes) or EXPERIENCE_QUANTIZED (also experience changes by a full quantum)")
+          .defineEnum("syncPolicy", SyncPolicy.ALWAYS);
+      syncExperienceQuantum =
+          builder.comment("Experience quantum for the EXPERIENCE_QUANTIZED sync policy.")
+              .defineInRange("syncExperienceQuantum", 10, 1, 10000);
+      syncKeepAliveInterval = builder.comment(
+          "Interval in seconds to sync player data regardless of the sync policy (0 = disabled)")
+          .defineInRange("syncKeepAliveInterval", 60, 0, 3600);
+      syncClientDerivation = builder.comment(
+          "Sync only the raw counters and let the client calculate levels and adjustments with the server settings.")
+          .define("syncClientDerivation", false);
+      builder.pop();
+
+      builder.push("Storage");
+      storageBackend = builder.comment(
+          "Storage for the player records: NBT (one file per player), APPEND_LOG (single append-only log) or JDBC (embedded H2 database or any other installed JDBC driver)")
+          .defineEnum("storageBackend", StorageBackend.NBT);
+      storageJdbcUrl = builder.comment(
+          "JDBC url for the JDBC storage, e.g. jdbc:sqlite:players.db (empty = H2 database inside the world folder)")
+          .define("storageJdbcUrl", "");
+      storageLogCompactionRatio = builder.comment(
+          "Compacts the append-only log, as soon as it contains this many entries per player.")
+          .defineInRange("storageLogCompactionRatio", 4, 2, 100);
+      storageSharedDirectory = builder.comment(
+          "Shared directory for the player records of several servers, e.g. /srv/minecraft/players (empty = world folder only). An embedded H2 database is opened in the auto server mode to share it.")
+          .define("storageSharedDirectory", "");
+      storageServerSlot = builder.comment(
+          "Unique name of this server inside the shared directory, which is used for the own counters of each player (empty = derived from host name and server port).")
+          .define("storageServerSlot", "");
       builder.pop();
 
       builder.push("Dealt Damage (from the player)");
@@ -276,6 +338,15 @@ public class CommonConfig {
       weaponClassLevelUpMessage =
           builder.comment("Enable/Disable level up player messages for weapon classes.")
               .define("weaponClassLevelUpMessage", true);
+      weaponClassParallelMapping = builder.comment(
+          "Enable/Disable parallel classification of the item registry for the weapon class mapping.")
+          .define("weaponClassParallelMapping", false);
+      weaponClassMappingCache = builder.comment(
+          "Enable/Disable the weapon class mapping cache, which is only rebuilt if the item registry or the mapping config changes.")
+          .define("weaponClassMappingCache", true);
+      weaponClassDurabilityMode = builder.comment(
+          "Durability mode for weapon classes: HISTORY reduces the difference to the former item damage, PROBABILISTIC refunds each point of applied wear with a chance like Unbreaking.")
+          .defineEnum("weaponClassDurabilityMode", DurabilityMode.HISTORY);
       builder.pop();
 
       builder.push("Axes");
@@ -27,14 +27,18 @@ import org.apache.logging.log4j.Logger;
 import com.google.common.collect.Maps;
 
 import net.minecraft.Util;
+import net.minecraft.server.MinecraftServer;
 
 import net.minecraftforge.event.level.LevelEvent;
 import net.minecraftforge.event.server.ServerAboutToStartEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
+import net.minecraftforge.server.ServerLifecycleHooks;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.NetworkHandler;
 
 @EventBusSubscriber
 public class Experience {
@@ -57,16 +61,28 @@ public class Experience {
         hashMap.put(10, 180);
       });
 
+  // Experience curve indexed by level, used for the level lookups.
+  private static volatile int[] levelExperience = new int[0];
+
   private static boolean init = false;
   private static int minLevel = 1;
-  private static int maxLevel = 100;
-  private static int experienceFactor = 300;
-  private static float experienceFactorItems = 1.25f;
+  private static volatile int maxLevel = 100;
+  private static volatile int experienceFactor = 300;
+  private static volatile float experienceFactorItems = 1.25f;
+  private static volatile int experienceDeathPenalty = 65;
+  private static volatile int experienceDeathPenaltyItems = 32;
+
+  // Settings of a remote server are used instead of the local config, until a local server starts.
+  private static volatile boolean serverSettings = false;
+
+  // Precalculated adjustment tables, replaced as a whole on config changes.
+  private static volatile ExperienceTables experienceTables = null;
 
   protected Experience() {}
 
   @SubscribeEvent
   public static void handleServerAboutToStartEvent(ServerAboutToStartEvent event) {
+    serverSettings = false;
     loadConfigAndCalculateLevelExperience();
   }
 
@@ -78,16 +94,67 @@ public class Experience {
     }
   }
 
+  /**
+   * Recalculates the level experience and adjustment tables on config changes. This is called from
+   * the config watcher thread, so the recalculation is handed over to the server thread, if any.
+   */
+  public static void handleModConfigReloadEvent(ModConfigEvent.Reloading event) {
+    if (event.getConfig().getSpec() != CommonConfig.commonSpec) {
+      return;
+    }
+    if (serverSettings) {
+      log.info("Config has changed, but the settings of the remote server are still used.");
+      return;
+    }
+    MinecraftServer minecraftServer = ServerLifecycleHooks.getCurrentServer();
+    if (minecraftServer == null) {
+      log.info("Config has changed, recalculating level experience and adjustment tables ...");
+      loadConfigAndCalculateLevelExperience();
+      return;
+    }
+    minecraftServer.execute(() -> {
+      log.info("Config has changed, recalculating level experience and adjustment tables ...");
+      loadConfigAndCalculateLevelExperience();
+
+      // Send the new settings first, so that the following player data is using them.
+      NetworkHandler.sendExperienceSettings();
+      PlayerDataManager.resyncPlayers();
+    });
+  }
+
   public static void loadConfigAndCalculateLevelExperience() {
     maxLevel = COMMON.levelMax.get();
     experienceFactor = COMMON.levelFactor.get();
     if (COMMON.levelFactorItems.get() > 0) {
       experienceFactorItems = COMMON.levelFactorItems.get() / 100.0f;
     }
+    experienceDeathPenalty = COMMON.levelExperienceDeathPenalty.get();
+    experienceDeathPenaltyItems = COMMON.levelExperienceDeathPenaltyItems.get();
     log.info(
         "Calculations will use {} as general experience factor and {} as item experience factor ...",
         experienceFactor, experienceFactorItems);
     calculateLevelExperienceMap();
+    experienceTables = ExperienceTables.fromConfig(maxLevel);
+  }
+
+  /**
+   * Uses the effective settings of the server instead of the local config, so that the client
+   * could calculate the same levels and adjustments as the server.
+   */
+  public static void loadServerSettings(int serverExperienceFactor,
+      float serverExperienceFactorItems, int serverExperienceDeathPenalty,
+      int serverExperienceDeathPenaltyItems, ExperienceTables serverExperienceTables) {
+    maxLevel = serverExperienceTables.getMaxLevel();
+    experienceFactor = serverExperienceFactor;
+    experienceFactorItems = serverExperienceFactorItems;
+    experienceDeathPenalty = serverExperienceDeathPenalty;
+    experienceDeathPenaltyItems = serverExperienceDeathPenaltyItems;
+    log.info("Using server settings with max level {}, experience factor {} and item factor {} ...",
+        maxLevel, experienceFactor, experienceFactorItems);
+    calculateLevelExperienceMap();
+    experienceTables = serverExperienceTables;
+    serverSettings = true;
+    init = true;
   }
 
   public static void calculateLevelExperienceMap() {
@@ -96,18 +163,23 @@ public class Experience {
     int experience = 0;
 
     // Reset former calculations
-    levelExperienceMap = Maps.newHashMap();
+    Map<Integer, Integer> experienceMap = Maps.newHashMap();
+    int[] experienceCurve = new int[maxLevel + 1];
 
     // Min level doesn't need any calculate
     log.debug("level: {} | exp: 0", minLevel, experience);
-    levelExperienceMap.put(minLevel, experience);
+    experienceMap.put(minLevel, experience);
+    experienceCurve[minLevel] = experience;
 
     // Calculate experience for the rest based on https://oldschool.runescape.wiki/w/Experience
     for (int level = minLevel; level < maxLevel; level++) {
       experience += Math.floor(0.25 * (level + experienceFactor * Math.pow(2.0, level / 7.0)));
       log.debug("level: {} | exp: {}", level + 1, experience);
-      levelExperienceMap.put(level + 1, experience);
+      experienceMap.put(level + 1, experience);
+      experienceCurve[level + 1] = experience;
     }
+    levelExperienceMap = experienceMap;
+    levelExperience = experienceCurve;
   }
 
   public static int getMinLevel() {
@@ -126,6 +198,15 @@ public class Experience {
     return experienceFactorItems;
   }
 
+  public static ExperienceTables getExperienceTables() {
+    ExperienceTables tables = experienceTables;
+    if (tables == null) {
+      tables = ExperienceTables.fromConfig(maxLevel);
+      experienceTables = tables;
+    }
+    return tables;
+  }
+
   public static Map<Integer, Integer> getLevelExperienceMap() {
     return levelExperienceMap;
   }
@@ -165,59 +246,47 @@ public class Experience {
   }
 
   public static int getExperienceDeathPenalty() {
-    return COMMON.levelExperienceDeathPenalty.get();
+    return experienceDeathPenalty;
   }
 
   public static int getExperienceDeathPenaltyItems() {
-    return COMMON.levelExperienceDeathPenaltyItems.get();
+    return experienceDeathPenaltyItems;
   }
 
   public static int getLevelFromExperience(int experience) {
+    int[] experienceCurve = levelExperience;
+    int lastLevel = experienceCurve.length - 1;
 
     // Check for min. level
-    if (experience < getExperienceForMinLevel()) {
+    if (lastLevel <= minLevel || experience < experienceCurve[minLevel + 1]) {
       return minLevel;
     }
 
     // Check for max. level
-    if (experience >= getExperienceForMaxLevel()) {
-      return maxLevel;
+    if (experience >= experienceCurve[lastLevel]) {
+      return lastLevel;
     }
 
-    // Check all other levels
-    for (int level = minLevel + 1; level < maxLevel; level++) {
-      if (getExperienceForLevel(level) > experience) {
-        return level - 1;
+    // Binary search for the highest level with experience(level) <= experience.
+    int lowLevel = minLevel + 1;
+    int highLevel = lastLevel - 1;
+    while (lowLevel < highLevel) {
+      int level = (lowLevel + highLevel + 1) >>> 1;
+      if (experienceCurve[level] <= experience) {
+        lowLevel = level;
+      } else {
+        highLevel = level - 1;
       }
     }
-
-    return 1;
+    return lowLevel;
   }
 
   public static float getHurtDamageAdjustment(int level) {
-    int levelCap = COMMON.hurtDamageLevelCap.get();
-    if (level <= levelCap) {
-      int hurtDamageReduction = COMMON.hurtDamageReduction.get();
-      return hurtDamageReduction == 0 ? 0.0f
-          : 1.0f - ((((float) ((levelCap + 1) - level) / levelCap) * hurtDamageReduction) / 100f);
-    } else {
-      int hurtDamageIncrease = COMMON.hurtDamageIncrease.get();
-      return hurtDamageIncrease == 0 ? 0.0f
-          : 1.0f + ((((float) level / maxLevel) * hurtDamageIncrease) / 100f);
-    }
+    return getExperienceTables().getHurtDamageAdjustment(level);
   }
 
   public static float getDealtDamageAdjustment(int level) {
-    int levelCap = COMMON.dealtDamageLevelCap.get();
-    if (level <= levelCap) {
-      int dealtDamageIncrease = COMMON.dealtDamageIncrease.get();
-      return dealtDamageIncrease == 0 ? 0.0f
-          : 1.0f + ((((float) ((levelCap + 1) - level) / levelCap) * dealtDamageIncrease) / 100f);
-    } else {
-      int dealtDamageReduction = COMMON.dealtDamageReduction.get();
-      return dealtDamageReduction == 0 ? 0.0f
-          : 1.0f - ((((float) level / maxLevel) * dealtDamageReduction) / 100f);
-    }
+    return getExperienceTables().getDealtDamageAdjustment(level);
   }
 
 }
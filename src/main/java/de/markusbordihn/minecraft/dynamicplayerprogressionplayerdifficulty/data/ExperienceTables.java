@@ -0,0 +1,185 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
+
+/**
+ * Immutable per-level adjustment tables, which are calculated once from the settings, so that every
+ * lookup is a single array access. A new instance is created for every config change.
+ */
+public class ExperienceTables {
+
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
+  private static final int NUMBER_OF_WEAPON_CLASSES = WeaponClass.values().length;
+
+  // Settings
+  private final int maxLevel;
+  private final int dealtDamageLevelCap;
+  private final int dealtDamageIncrease;
+  private final int dealtDamageReduction;
+  private final int hurtDamageLevelCap;
+  private final int hurtDamageIncrease;
+  private final int hurtDamageReduction;
+  private final int[] weaponClassDamageIncrease;
+  private final int[] weaponClassDurabilityIncrease;
+
+  // Tables, indexed by level and WeaponClass.ordinal()
+  private final float[] dealtDamageAdjustment;
+  private final float[] hurtDamageAdjustment;
+  private final float[][] weaponClassDamageAdjustment;
+  private final float[][] weaponClassDurabilityAdjustment;
+
+  public ExperienceTables(int maxLevel, int dealtDamageLevelCap, int dealtDamageIncrease,
+      int dealtDamageReduction, int hurtDamageLevelCap, int hurtDamageIncrease,
+      int hurtDamageReduction, int[] weaponClassDamageIncrease,
+      int[] weaponClassDurabilityIncrease) {
+    this.maxLevel = maxLevel;
+    this.dealtDamageLevelCap = dealtDamageLevelCap;
+    this.dealtDamageIncrease = dealtDamageIncrease;
+    this.dealtDamageReduction = dealtDamageReduction;
+    this.hurtDamageLevelCap = hurtDamageLevelCap;
+    this.hurtDamageIncrease = hurtDamageIncrease;
+    this.hurtDamageReduction = hurtDamageReduction;
+    this.weaponClassDamageIncrease = weaponClassDamageIncrease.clone();
+    this.weaponClassDurabilityIncrease = weaponClassDurabilityIncrease.clone();
+
+    this.dealtDamageAdjustment = new float[maxLevel + 1];
+    this.hurtDamageAdjustment = new float[maxLevel + 1];
+    for (int level = 0; level <= maxLevel; level++) {
+      this.dealtDamageAdjustment[level] = calculateDealtDamageAdjustment(level);
+      this.hurtDamageAdjustment[level] = calculateHurtDamageAdjustment(level);
+    }
+
+    this.weaponClassDamageAdjustment = new float[NUMBER_OF_WEAPON_CLASSES][maxLevel + 1];
+    this.weaponClassDurabilityAdjustment = new float[NUMBER_OF_WEAPON_CLASSES][maxLevel + 1];
+    for (int index = 0; index < NUMBER_OF_WEAPON_CLASSES; index++) {
+      for (int level = 0; level <= maxLevel; level++) {
+        this.weaponClassDamageAdjustment[index][level] =
+            calculateAdjustment(this.weaponClassDamageIncrease[index], level, maxLevel);
+        this.weaponClassDurabilityAdjustment[index][level] =
+            calculateAdjustment(this.weaponClassDurabilityIncrease[index], level, maxLevel);
+      }
+    }
+  }
+
+  public static ExperienceTables fromConfig(int maxLevel) {
+    int[] weaponClassDamageIncrease = new int[NUMBER_OF_WEAPON_CLASSES];
+    int[] weaponClassDurabilityIncrease = new int[NUMBER_OF_WEAPON_CLASSES];
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      weaponClassDamageIncrease[weaponClass.ordinal()] = (int) weaponClass.getDamageAdjustment();
+      weaponClassDurabilityIncrease[weaponClass.ordinal()] = weaponClass.getDurabilityAdjustment();
+    }
+    return new ExperienceTables(maxLevel, COMMON.dealtDamageLevelCap.get(),
+        COMMON.dealtDamageIncrease.get(), COMMON.dealtDamageReduction.get(),
+        COMMON.hurtDamageLevelCap.get(), COMMON.hurtDamageIncrease.get(),
+        COMMON.hurtDamageReduction.get(), weaponClassDamageIncrease,
+        weaponClassDurabilityIncrease);
+  }
+
+  public static float calculateAdjustment(int adjustment, int level, int maxLevel) {
+    return adjustment == 0 || level == 1 ? 0.0f
+        : 1.0f + ((((float) level / maxLevel) * adjustment) / 100f);
+  }
+
+  private float calculateDealtDamageAdjustment(int level) {
+    if (level <= dealtDamageLevelCap) {
+      return dealtDamageIncrease == 0 ? 0.0f
+          : 1.0f + ((((float) ((dealtDamageLevelCap + 1) - level) / dealtDamageLevelCap)
+              * dealtDamageIncrease) / 100f);
+    } else {
+      return dealtDamageReduction == 0 ? 0.0f
+          : 1.0f - ((((float) level / maxLevel) * dealtDamageReduction) / 100f);
+    }
+  }
+
+  private float calculateHurtDamageAdjustment(int level) {
+    if (level <= hurtDamageLevelCap) {
+      return hurtDamageReduction == 0 ? 0.0f
+          : 1.0f - ((((float) ((hurtDamageLevelCap + 1) - level) / hurtDamageLevelCap)
+              * hurtDamageReduction) / 100f);
+    } else {
+      return hurtDamageIncrease == 0 ? 0.0f
+          : 1.0f + ((((float) level / maxLevel) * hurtDamageIncrease) / 100f);
+    }
+  }
+
+  public boolean hasLevel(int level) {
+    return level >= 0 && level <= maxLevel;
+  }
+
+  public float getDealtDamageAdjustment(int level) {
+    return hasLevel(level) ? dealtDamageAdjustment[level] : calculateDealtDamageAdjustment(level);
+  }
+
+  public float getHurtDamageAdjustment(int level) {
+    return hasLevel(level) ? hurtDamageAdjustment[level] : calculateHurtDamageAdjustment(level);
+  }
+
+  public float getWeaponClassDamageAdjustment(WeaponClass weaponClass, int level) {
+    int index = weaponClass.ordinal();
+    return hasLevel(level) ? weaponClassDamageAdjustment[index][level]
+        : calculateAdjustment(weaponClassDamageIncrease[index], level, maxLevel);
+  }
+
+  public float getWeaponClassDurabilityAdjustment(WeaponClass weaponClass, int level) {
+    int index = weaponClass.ordinal();
+    return hasLevel(level) ? weaponClassDurabilityAdjustment[index][level]
+        : calculateAdjustment(weaponClassDurabilityIncrease[index], level, maxLevel);
+  }
+
+  public int getMaxLevel() {
+    return maxLevel;
+  }
+
+  public int getDealtDamageLevelCap() {
+    return dealtDamageLevelCap;
+  }
+
+  public int getDealtDamageIncrease() {
+    return dealtDamageIncrease;
+  }
+
+  public int getDealtDamageReduction() {
+    return dealtDamageReduction;
+  }
+
+  public int getHurtDamageLevelCap() {
+    return hurtDamageLevelCap;
+  }
+
+  public int getHurtDamageIncrease() {
+    return hurtDamageIncrease;
+  }
+
+  public int getHurtDamageReduction() {
+    return hurtDamageReduction;
+  }
+
+  public int getWeaponClassDamageIncrease(WeaponClass weaponClass) {
+    return weaponClassDamageIncrease[weaponClass.ordinal()];
+  }
+
+  public int getWeaponClassDurabilityIncrease(WeaponClass weaponClass) {
+    return weaponClassDurabilityIncrease[weaponClass.ordinal()];
+  }
+
+}
@@ -35,6 +35,9 @@ public class PlayerClientData {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
+  // Last full player data, which is used as base for the delta updates.
+  private static CompoundTag lastCompoundTag = null;
+
   protected PlayerClientData() {}
 
   public static void load(String data) {
@@ -50,11 +53,28 @@ public class PlayerClientData {
   }
 
   public static void load(CompoundTag compoundTag) {
-    if (compoundTag.contains(PlayerData.UUID_TAG)) {
+    if (!compoundTag.isEmpty()) {
+      lastCompoundTag = compoundTag;
       PlayerDataManager.loadClientData(compoundTag);
     } else {
       log.error("Unable to load Player Companion data from {}!", compoundTag);
     }
   }
 
+  /** Reloads the last player data, e.g. to recalculate it after new experience settings. */
+  public static void reload() {
+    if (lastCompoundTag != null) {
+      load(lastCompoundTag);
+    }
+  }
+
+  public static void loadDelta(CompoundTag deltaCompoundTag) {
+    if (lastCompoundTag == null) {
+      log.error("Unable to apply Player data delta {} without any full player data!",
+          deltaCompoundTag);
+      return;
+    }
+    load(PlayerDataDelta.apply(lastCompoundTag, deltaCompoundTag));
+  }
+
 }
@@ -19,7 +19,9 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
 
-import java.util.EnumMap;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.UUID;
 
@@ -34,7 +36,7 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.stats.ServerStatsCounter;
-import net.minecraft.stats.StatType;
+import net.minecraft.stats.Stat;
 import net.minecraft.stats.Stats;
 import net.minecraft.world.item.Item;
 
@@ -44,6 +46,7 @@ import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.PlayerRecordStorageManager;
 
 @EventBusSubscriber
 public class PlayerData {
@@ -80,6 +83,29 @@ public class PlayerData {
   public static final String PVP_ENABLED_TAG = "PvPEnabled";
   public static final String UUID_TAG = "UUID";
 
+  public static final String DAMAGE_DEALT_TAG = "DamageDealt";
+  public static final String WEAPON_CLASS_USAGE_TAG = "WeaponClassUsage";
+  public static final String SERVER_COUNTERS_TAG = "ServerCounters";
+
+  // Tracked general stats and bit mask for all weapon classes.
+  private static final ResourceLocation[] TRACKED_CUSTOM_STATS = {Stats.DAMAGE_ABSORBED,
+      Stats.DAMAGE_BLOCKED_BY_SHIELD, Stats.DAMAGE_DEALT, Stats.DAMAGE_DEALT_ABSORBED,
+      Stats.DAMAGE_DEALT_RESISTED, Stats.DAMAGE_RESISTED, Stats.DAMAGE_TAKEN, Stats.CROUCH_TIME,
+      Stats.MOB_KILLS, Stats.DEATHS, Stats.PLAYER_KILLS, Stats.RAID_TRIGGER, Stats.RAID_WIN,
+      Stats.TARGET_HIT};
+  private static final int NUMBER_OF_WEAPON_CLASSES = WeaponClass.values().length;
+  private static final int ALL_WEAPON_CLASSES = (1 << NUMBER_OF_WEAPON_CLASSES) - 1;
+
+  // Approximated memory layout (compressed oops) for the memory footprint report.
+  private static final int OBJECT_HEADER_SIZE = 12;
+  private static final int ARRAY_HEADER_SIZE = 16;
+  private static final int REFERENCE_SIZE = 4;
+  private static final int BOXED_VALUE_SIZE = 16;
+  private static final int ENUM_MAP_SIZE = 40;
+  private static final long INSTANCE_FIELDS_SIZE = calculateInstanceFieldsSize();
+  private static final int NUMBER_OF_WEAPON_CLASS_ARRAYS = countWeaponClassArrays();
+  private static final int NUMBER_OF_WEAPON_CLASS_ENUM_MAPS = 6;
+
   private ServerPlayer player;
   private ServerStatsCounter stats;
 
@@ -120,19 +146,37 @@ public class PlayerData {
   private int damageLevelMob = 1;
   private int damageLevelPlayer = 1;
 
-  // Weapon Class
-  private EnumMap<WeaponClass, Integer> weaponClassExperienceMap = new EnumMap<>(WeaponClass.class);
-  private EnumMap<WeaponClass, Integer> weaponClassExperienceBaseMap =
-      new EnumMap<>(WeaponClass.class);
-  private EnumMap<WeaponClass, Integer> weaponClassLevelMap = new EnumMap<>(WeaponClass.class);
-  private EnumMap<WeaponClass, Float> weaponClassDamageAdjustmentMap =
-      new EnumMap<>(WeaponClass.class);
-  private EnumMap<WeaponClass, Float> weaponClassDurabilityAdjustmentMap =
-      new EnumMap<>(WeaponClass.class);
-
-  // Weapon Class Cache for level up messages
-  private EnumMap<WeaponClass, Integer> weaponClassLevelHistoryMap =
-      new EnumMap<>(WeaponClass.class);
+  // Weapon Class, indexed by WeaponClass.ordinal()
+  private final int[] weaponClassExperience = new int[NUMBER_OF_WEAPON_CLASSES];
+  private final int[] weaponClassExperienceBase = new int[NUMBER_OF_WEAPON_CLASSES];
+  private final int[] weaponClassLevel = new int[NUMBER_OF_WEAPON_CLASSES];
+  private final float[] weaponClassDamageAdjustment = new float[NUMBER_OF_WEAPON_CLASSES];
+  private final float[] weaponClassDurabilityAdjustment = new float[NUMBER_OF_WEAPON_CLASSES];
+
+  // Weapon Class item usage, updated incrementally over stat changes.
+  private final int[] weaponClassItemUsage = new int[NUMBER_OF_WEAPON_CLASSES];
+
+  // Counters of all other servers of a shared player record, which are added to the own stats.
+  private int mobKillsOffset = 0;
+  private int playerKillsOffset = 0;
+  private int deathsOffset = 0;
+  private int damageDealtOffset = 0;
+  private final int[] weaponClassItemUsageOffset = new int[NUMBER_OF_WEAPON_CLASSES];
+
+  // Stat changes and pending recalculations
+  private final PlayerStatsTracker statsTracker = new PlayerStatsTracker();
+  private int trackedStatsVersion = -1;
+  private boolean damageExperienceChanged = true;
+  private int changedWeaponClasses = ALL_WEAPON_CLASSES;
+
+  // Version of the stored values, which is increased for each change and compared with the version
+  // of the last stored player record.
+  private int version = 0;
+  private int savedVersion = 0;
+  private boolean valuesChanged = false;
+
+  // Weapon Class Cache for level up messages, -1 means no former level.
+  private final int[] weaponClassLevelHistory = new int[NUMBER_OF_WEAPON_CLASSES];
 
   // Player adjustments
   private float dealtDamageAdjustmentMob = 0;
@@ -140,9 +184,13 @@ public class PlayerData {
   private float hurtDamageAdjustmentMob = 0;
   private float hurtDamageAdjustmentPlayer = 0;
 
-  public PlayerData() {}
+  public PlayerData() {
+    Arrays.fill(this.weaponClassLevel, 1);
+    Arrays.fill(this.weaponClassLevelHistory, -1);
+  }
 
   public PlayerData(CompoundTag compoundTag) {
+    this();
     if (compoundTag == null || compoundTag.isEmpty()) {
       return;
     }
@@ -150,6 +198,12 @@ public class PlayerData {
   }
 
   public PlayerData(ServerPlayer player) {
+    this(player, null);
+  }
+
+  /** Creates the player data with the stored player record, if any. */
+  public PlayerData(ServerPlayer player, CompoundTag playerRecord) {
+    this();
     if (player == null) {
       return;
     }
@@ -157,7 +211,28 @@ public class PlayerData {
     this.username = player.getName().getString();
     this.userUUID = player.getUUID();
     this.stats = player.getStats();
+
+    // Use the same PvP setting as the client, which receives it with the synced player data.
+    this.pvpEnabled = getPvPEnabledServer();
+
+    // The stored record needs the player fields above, e.g. for the log messages.
+    if (playerRecord != null && !playerRecord.isEmpty()) {
+      loadLevelHistory(playerRecord);
+      if (PlayerRecordStorageManager.isSharedStorage()) {
+        loadServerCounters(playerRecord, PlayerRecordStorageManager.getServerSlot());
+      }
+    }
+    this.statsTracker.subscribe(this::onStatChange);
     updateStats();
+
+    // Nothing to store, if the recalculated values are the same as the stored values.
+    if (playerRecord != null) {
+      CompoundTag storedValues = playerRecord.copy();
+      storedValues.remove(SERVER_COUNTERS_TAG);
+      if (save(new CompoundTag()).equals(storedValues)) {
+        markSaved();
+      }
+    }
   }
 
   @SubscribeEvent
@@ -173,32 +248,145 @@ public class PlayerData {
     if (this.stats == null && this.player != null) {
       this.stats = player.getStats();
     }
-    updateStats(this.stats);
+    if (this.stats == null) {
+      return;
+    }
+
+    // Full resync is only needed for a new weapon class mapping, otherwise use stat deltas.
+    if (this.trackedStatsVersion != WeaponClassData.getWeaponClassLookupVersion()) {
+      updateStats(this.stats);
+    } else {
+      this.statsTracker.poll(this.stats);
+      updateProgression();
+    }
   }
 
+  /** Full resync of all stats and progression values, without using any stat deltas. */
   public void updateStats(ServerStatsCounter stats) {
     if (stats == null) {
       return;
     }
 
-    // Stats which needs conversions
-    this.damageAbsorbed = getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_ABSORBED);
-    this.damageBlockedByShield =
-        getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_BLOCKED_BY_SHIELD);
-    this.damageDealt = getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_DEALT) / 10;
-    this.damageDealtAbsorbed = getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_DEALT_ABSORBED);
-    this.damageDealtResisted = getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_DEALT_RESISTED);
-    this.damageResisted = getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_RESISTED);
-    this.damageTaken = getStatsFloatValue(stats, Stats.CUSTOM, Stats.DAMAGE_TAKEN);
-    this.sneakTime = getStatsFloatValue(stats, Stats.CUSTOM, Stats.CROUCH_TIME);
-
-    // Stats without conversion
-    this.mobKills = stats.getValue(Stats.CUSTOM, Stats.MOB_KILLS);
-    this.numberOfDeaths = stats.getValue(Stats.CUSTOM, Stats.DEATHS);
-    this.playerKills = stats.getValue(Stats.CUSTOM, Stats.PLAYER_KILLS);
-    this.raidsTriggered = stats.getValue(Stats.CUSTOM, Stats.RAID_TRIGGER);
-    this.raidsWon = stats.getValue(Stats.CUSTOM, Stats.RAID_WIN);
-    this.targetsHit = stats.getValue(Stats.CUSTOM, Stats.TARGET_HIT);
+    // General stats
+    for (ResourceLocation customStat : TRACKED_CUSTOM_STATS) {
+      int value = stats.getValue(Stats.CUSTOM, customStat);
+      this.statsTracker.reset(Stats.CUSTOM.get(customStat), value);
+      updateCustomStat(customStat, value);
+    }
+
+    // Weapon class item usage
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      int usage = this.weaponClassItemUsageOffset[weaponClass.ordinal()];
+      Set<Item> weaponClassItems = weaponClass.getItems();
+      if (weaponClassItems != null) {
+        for (Item item : weaponClassItems) {
+          int itemUsage = stats.getValue(Stats.ITEM_USED, item);
+          this.statsTracker.reset(Stats.ITEM_USED.get(item), itemUsage);
+          if (itemUsage > 0) {
+            usage += itemUsage;
+          }
+        }
+      }
+      this.weaponClassItemUsage[weaponClass.ordinal()] = usage;
+    }
+    this.trackedStatsVersion = WeaponClassData.getWeaponClassLookupVersion();
+
+    // Recalculate everything.
+    this.damageExperienceChanged = true;
+    this.changedWeaponClasses = ALL_WEAPON_CLASSES;
+    updateProgression();
+  }
+
+  /** Full resync with the current stats, which also covers stat changes without any event. */
+  public void resyncStats() {
+    if (this.stats != null) {
+      updateStats(this.stats);
+    }
+  }
+
+  /** Updates only the fields which are affected by the given stat change. */
+  public void onStatChange(PlayerStatsTracker.StatChange statChange) {
+    if (statChange.getType() == Stats.ITEM_USED) {
+      if (statChange.getKey() instanceof Item item) {
+        WeaponClass weaponClass = WeaponClassData.getWeaponClass(item);
+        if (weaponClass != null) {
+          this.weaponClassItemUsage[weaponClass.ordinal()] += statChange.getDelta();
+          this.changedWeaponClasses |= 1 << weaponClass.ordinal();
+        }
+      }
+    } else if (statChange.getType() == Stats.CUSTOM
+        && statChange.getKey() instanceof ResourceLocation customStat) {
+      updateCustomStat(customStat, statChange.getValue());
+    }
+  }
+
+  private void updateCustomStat(ResourceLocation customStat, int value) {
+    if (Stats.DAMAGE_DEALT.equals(customStat)) {
+      this.damageDealt = (value + this.damageDealtOffset) / 10.0f;
+      this.damageExperienceChanged = true;
+    } else if (Stats.MOB_KILLS.equals(customStat)) {
+      this.valuesChanged |= this.mobKills != value + this.mobKillsOffset;
+      this.mobKills = value + this.mobKillsOffset;
+      this.damageExperienceChanged = true;
+    } else if (Stats.PLAYER_KILLS.equals(customStat)) {
+      this.valuesChanged |= this.playerKills != value + this.playerKillsOffset;
+      this.playerKills = value + this.playerKillsOffset;
+      this.damageExperienceChanged = true;
+    } else if (Stats.DEATHS.equals(customStat)) {
+      // Deaths are affecting the experience penalty for all weapon classes.
+      this.valuesChanged |= this.numberOfDeaths != value + this.deathsOffset;
+      this.numberOfDeaths = value + this.deathsOffset;
+      this.damageExperienceChanged = true;
+      this.changedWeaponClasses = ALL_WEAPON_CLASSES;
+    } else if (Stats.DAMAGE_ABSORBED.equals(customStat)) {
+      this.damageAbsorbed = value;
+    } else if (Stats.DAMAGE_BLOCKED_BY_SHIELD.equals(customStat)) {
+      this.damageBlockedByShield = value;
+    } else if (Stats.DAMAGE_DEALT_ABSORBED.equals(customStat)) {
+      this.damageDealtAbsorbed = value;
+    } else if (Stats.DAMAGE_DEALT_RESISTED.equals(customStat)) {
+      this.damageDealtResisted = value;
+    } else if (Stats.DAMAGE_RESISTED.equals(customStat)) {
+      this.damageResisted = value;
+    } else if (Stats.DAMAGE_TAKEN.equals(customStat)) {
+      this.damageTaken = value;
+    } else if (Stats.CROUCH_TIME.equals(customStat)) {
+      this.sneakTime = value;
+    } else if (Stats.RAID_TRIGGER.equals(customStat)) {
+      this.raidsTriggered = value;
+    } else if (Stats.RAID_WIN.equals(customStat)) {
+      this.raidsWon = value;
+    } else if (Stats.TARGET_HIT.equals(customStat)) {
+      this.targetsHit = value;
+    }
+  }
+
+  private void updateProgression() {
+    if (this.damageExperienceChanged) {
+      updateDamageExperience();
+      this.damageExperienceChanged = false;
+    }
+    if (this.changedWeaponClasses != 0) {
+      updateWeaponClasses(this.changedWeaponClasses);
+      this.changedWeaponClasses = 0;
+    }
+
+    // Only changed values are increasing the version, which marks the player record as dirty.
+    if (this.valuesChanged) {
+      this.valuesChanged = false;
+      this.version++;
+      if (this.player != null) {
+        PlayerServerData.markDirty();
+      }
+    }
+  }
+
+  private void updateDamageExperience() {
+    int formerDamageExperienceMob = this.damageExperienceMob;
+    int formerDamageExperiencePlayer = this.damageExperiencePlayer;
+    int formerDamageLevelMob = this.damageLevelMob;
+    int formerDamageLevelPlayer = this.damageLevelPlayer;
+    int formerExperiencePenaltyGeneral = this.experiencePenaltyGeneral;
 
     // Calculate base damage experience
     double damageBase = this.playerKills + (double) this.mobKills;
@@ -235,17 +423,35 @@ public class PlayerData {
       this.hurtDamageAdjustmentPlayer = Experience.getHurtDamageAdjustment(this.damageLevelPlayer);
     }
 
+    // Adjustments are depending on the levels, so there is no need to compare them.
+    this.valuesChanged |= formerDamageExperienceMob != this.damageExperienceMob
+        || formerDamageExperiencePlayer != this.damageExperiencePlayer
+        || formerDamageLevelMob != this.damageLevelMob
+        || formerDamageLevelPlayer != this.damageLevelPlayer
+        || formerExperiencePenaltyGeneral != this.experiencePenaltyGeneral;
+  }
+
+  private void updateWeaponClasses(int weaponClassMask) {
     // Weapon Class Calculations
     int maxLevel = Experience.getMaxLevel();
     float experienceFactorItems = Experience.getExperienceFactorItems();
     boolean weaponClassLevelUpMessage = COMMON.weaponClassLevelUpMessage.get();
-    this.experiencePenaltyWeaponClass =
+    int experiencePenaltyWeaponClass =
         this.numberOfDeaths * Experience.getExperienceDeathPenaltyItems();
+    this.valuesChanged |= this.experiencePenaltyWeaponClass != experiencePenaltyWeaponClass;
+    this.experiencePenaltyWeaponClass = experiencePenaltyWeaponClass;
 
     for (WeaponClass weaponClass : WeaponClass.values()) {
+      // Skip weapon classes without any changes.
+      int index = weaponClass.ordinal();
+      if ((weaponClassMask & (1 << index)) == 0) {
+        continue;
+      }
       // Get relevant items for weapon class and calculations for weapon classes without any items.
+      // Synced item usage is used as it is, because the client could have no own mapping.
       Set<Item> weaponClassItems = weaponClass.getItems();
-      if (weaponClassItems == null || weaponClassItems.isEmpty()) {
+      if (this.weaponClassItemUsage[index] == 0
+          && (weaponClassItems == null || weaponClassItems.isEmpty())) {
         continue;
       }
 
@@ -253,9 +459,10 @@ public class PlayerData {
       int weaponClassExperienceBase = 0;
       if (experienceFactorItems > 0.0f) {
         weaponClassExperienceBase =
-            Math.round(getItemsUsage(weaponClassItems) * experienceFactorItems);
+            Math.round(this.weaponClassItemUsage[index] * experienceFactorItems);
       }
-      weaponClassExperienceBaseMap.put(weaponClass, weaponClassExperienceBase);
+      this.valuesChanged |= this.weaponClassExperienceBase[index] != weaponClassExperienceBase;
+      this.weaponClassExperienceBase[index] = weaponClassExperienceBase;
 
       // Calculate weapon class experience including any kind of penalty.
       int weaponClassExperience = weaponClassExperienceBase;
@@ -263,33 +470,34 @@ public class PlayerData {
         weaponClassExperience =
             Math.max(weaponClassExperienceBase - this.experiencePenaltyWeaponClass, 0);
       }
-      weaponClassExperienceMap.put(weaponClass, weaponClassExperience);
+      this.valuesChanged |= this.weaponClassExperience[index] != weaponClassExperience;
+      this.weaponClassExperience[index] = weaponClassExperience;
 
       // Calculate weapon class level based on item experience.
       int weaponClassLevel = 1;
       if (weaponClassExperience > 0) {
         weaponClassLevel = Experience.getLevelFromExperience(weaponClassExperience);
       }
-      weaponClassLevelMap.put(weaponClass, weaponClassLevel);
+      this.valuesChanged |= this.weaponClassLevel[index] != weaponClassLevel;
+      this.weaponClassLevel[index] = weaponClassLevel;
 
       // Display level up message, if enabled.
-      if (weaponClassLevelUpMessage) {
+      if (weaponClassLevelUpMessage && player != null) {
 
         // Cache former weapon class level, in the case we have none.
-        int lastWeaponClassLevel = weaponClassLevelHistoryMap.getOrDefault(weaponClass, -1);
+        int lastWeaponClassLevel = this.weaponClassLevelHistory[index];
         if (lastWeaponClassLevel == -1) {
-          weaponClassLevelHistoryMap.put(weaponClass, weaponClassLevel);
+          this.weaponClassLevelHistory[index] = weaponClassLevel;
         }
 
         // Show level up message if new level is higher than former weapon class level.
-        else if (weaponClassLevel > 1
-            && weaponClassLevel > weaponClassLevelHistoryMap.getOrDefault(weaponClass, 1)) {
+        else if (weaponClassLevel > 1 && weaponClassLevel > lastWeaponClassLevel) {
           player
               .sendSystemMessage(Component
                   .translatable(Constants.TEXT_PREFIX + ".level_up", player.getName(),
                       weaponClass.text, lastWeaponClassLevel, weaponClassLevel)
                   .withStyle(ChatFormatting.GREEN));
-          weaponClassLevelHistoryMap.put(weaponClass, weaponClassLevel);
+          this.weaponClassLevelHistory[index] = weaponClassLevel;
         }
       }
 
@@ -298,7 +506,7 @@ public class PlayerData {
       if (weaponClassLevel > 1) {
         weaponClassDamageAdjustment = weaponClass.getDamageAdjustment(weaponClassLevel, maxLevel);
       }
-      weaponClassDamageAdjustmentMap.put(weaponClass, weaponClassDamageAdjustment);
+      this.weaponClassDamageAdjustment[index] = weaponClassDamageAdjustment;
 
       // Calculate weapon class durability adjustments based on item level.
       float weaponClassDurabilityAdjustment = 0.0f;
@@ -306,10 +514,100 @@ public class PlayerData {
         weaponClassDurabilityAdjustment =
             weaponClass.getDurabilityAdjustment(weaponClassLevel, maxLevel);
       }
-      weaponClassDurabilityAdjustmentMap.put(weaponClass, weaponClassDurabilityAdjustment);
+      this.weaponClassDurabilityAdjustment[index] = weaponClassDurabilityAdjustment;
+    }
+  }
+
+  /** Marks the item usage as changed, so that it is refreshed with the next stats update. */
+  public void addUsedItem(Item item) {
+    if (item != null) {
+      this.statsTracker.markChanged(Stats.ITEM_USED.get(item));
     }
   }
 
+  /** Marks the stat as changed, so that it is refreshed with the next stats update. */
+  public void markStatChanged(Stat<?> stat) {
+    this.statsTracker.markChanged(stat);
+  }
+
+  /** Marks all general stats like kills, deaths and damage as changed. */
+  public void markGeneralStatsChanged() {
+    for (ResourceLocation customStat : TRACKED_CUSTOM_STATS) {
+      this.statsTracker.markChanged(Stats.CUSTOM.get(customStat));
+    }
+  }
+
+  public int getVersion() {
+    return this.version;
+  }
+
+  /** Player data has changed since the last stored player record. */
+  public boolean isDirty() {
+    return this.version != this.savedVersion;
+  }
+
+  public void markSaved() {
+    this.savedVersion = this.version;
+  }
+
+  public PlayerStatsTracker getStatsTracker() {
+    return this.statsTracker;
+  }
+
+  /**
+   * Validates the incremental progression against a full resync and returns the number of
+   * differences. In the case of any difference the full resync values will be used.
+   */
+  public int validateStats() {
+    if (this.stats == null) {
+      return 0;
+    }
+    this.statsTracker.poll(this.stats);
+    updateProgression();
+
+    PlayerData fullPlayerData = new PlayerData();
+    fullPlayerData.pvpEnabled = this.pvpEnabled;
+    fullPlayerData.mobKillsOffset = this.mobKillsOffset;
+    fullPlayerData.playerKillsOffset = this.playerKillsOffset;
+    fullPlayerData.deathsOffset = this.deathsOffset;
+    fullPlayerData.damageDealtOffset = this.damageDealtOffset;
+    System.arraycopy(this.weaponClassItemUsageOffset, 0, fullPlayerData.weaponClassItemUsageOffset,
+        0, NUMBER_OF_WEAPON_CLASSES);
+    fullPlayerData.updateStats(this.stats);
+
+    int differences = 0;
+    differences += validateValue("mob kills", this.mobKills, fullPlayerData.mobKills);
+    differences += validateValue("player kills", this.playerKills, fullPlayerData.playerKills);
+    differences += validateValue("deaths", this.numberOfDeaths, fullPlayerData.numberOfDeaths);
+    differences += validateValue("damage experience mob", this.damageExperienceMob,
+        fullPlayerData.damageExperienceMob);
+    differences += validateValue("damage experience player", this.damageExperiencePlayer,
+        fullPlayerData.damageExperiencePlayer);
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      differences += validateValue(weaponClass + " experience",
+          getWeaponClassExperience(weaponClass), fullPlayerData.getWeaponClassExperience(weaponClass));
+    }
+    if (differences > 0) {
+      updateStats(this.stats);
+    }
+    return differences;
+  }
+
+  private int validateValue(String name, int value, int expectedValue) {
+    if (value != expectedValue) {
+      log.warn("[Validate Stats] {} {} is {} but expected {}", this.username, name, value,
+          expectedValue);
+      return 1;
+    }
+    return 0;
+  }
+
+  /** Updates the player reference, e.g. after a respawn with a new player entity. */
+  public void setPlayer(ServerPlayer player) {
+    this.player = player;
+    this.stats = player.getStats();
+  }
+
   public boolean getPvPEnabled() {
     return pvpEnabled;
   }
@@ -431,23 +729,95 @@ public class PlayerData {
   }
 
   public int getWeaponClassExperience(WeaponClass weaponClass) {
-    return weaponClassExperienceMap.getOrDefault(weaponClass, 0);
+    return weaponClassExperience[weaponClass.ordinal()];
   }
 
   public int getWeaponClassExperienceBase(WeaponClass weaponClass) {
-    return weaponClassExperienceBaseMap.getOrDefault(weaponClass, 0);
+    return weaponClassExperienceBase[weaponClass.ordinal()];
   }
 
   public int getWeaponClassLevel(WeaponClass weaponClass) {
-    return weaponClassLevelMap.getOrDefault(weaponClass, 1);
+    return weaponClassLevel[weaponClass.ordinal()];
   }
 
   public float getWeaponClassDamageAdjustment(WeaponClass weaponClass) {
-    return weaponClassDamageAdjustmentMap.getOrDefault(weaponClass, 0.0f);
+    return weaponClassDamageAdjustment[weaponClass.ordinal()];
   }
 
   public float getWeaponClassDurabilityAdjustment(WeaponClass weaponClass) {
-    return weaponClassDurabilityAdjustmentMap.getOrDefault(weaponClass, 0.0f);
+    return weaponClassDurabilityAdjustment[weaponClass.ordinal()];
+  }
+
+  /**
+   * Estimated memory usage of a single player data in bytes, without the name, the UUID and the
+   * stats tracker. The field layout is calculated from the declared fields.
+   */
+  public static long getEstimatedMemoryUsage() {
+    return alignMemorySize(OBJECT_HEADER_SIZE + INSTANCE_FIELDS_SIZE)
+        + getEstimatedWeaponClassMemoryUsage();
+  }
+
+  /** Estimated memory usage of the stats tracker of this player data in bytes. */
+  public long getEstimatedStatsTrackerMemoryUsage() {
+    return this.statsTracker.getEstimatedMemoryUsage();
+  }
+
+  /** Estimated memory usage of the primitive weapon class arrays in bytes. */
+  public static long getEstimatedWeaponClassMemoryUsage() {
+    return NUMBER_OF_WEAPON_CLASS_ARRAYS
+        * alignMemorySize(ARRAY_HEADER_SIZE + NUMBER_OF_WEAPON_CLASSES * 4L);
+  }
+
+  /**
+   * Estimated memory usage of the same weapon class data with the former six EnumMaps with boxed
+   * values for experience, base experience, level, adjustments and level history, which is only
+   * used for comparison. All newer arrays are counted as arrays.
+   */
+  public static long getEstimatedWeaponClassEnumMapMemoryUsage() {
+    long enumMapSize = ENUM_MAP_SIZE
+        + alignMemorySize(ARRAY_HEADER_SIZE + NUMBER_OF_WEAPON_CLASSES * (long) REFERENCE_SIZE)
+        + NUMBER_OF_WEAPON_CLASSES * (long) BOXED_VALUE_SIZE;
+    return NUMBER_OF_WEAPON_CLASS_ENUM_MAPS * enumMapSize
+        + (NUMBER_OF_WEAPON_CLASS_ARRAYS - NUMBER_OF_WEAPON_CLASS_ENUM_MAPS)
+            * alignMemorySize(ARRAY_HEADER_SIZE + NUMBER_OF_WEAPON_CLASSES * 4L);
+  }
+
+  private static long calculateInstanceFieldsSize() {
+    long size = 0;
+    for (Field field : PlayerData.class.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      Class<?> type = field.getType();
+      if (type == long.class || type == double.class) {
+        size += 8;
+      } else if (type == int.class || type == float.class) {
+        size += 4;
+      } else if (type == short.class || type == char.class) {
+        size += 2;
+      } else if (type == byte.class || type == boolean.class) {
+        size += 1;
+      } else {
+        size += REFERENCE_SIZE;
+      }
+    }
+    return size;
+  }
+
+  /** Counts the primitive arrays, which are all indexed by the weapon class. */
+  private static int countWeaponClassArrays() {
+    int numberOfArrays = 0;
+    for (Field field : PlayerData.class.getDeclaredFields()) {
+      if (!Modifier.isStatic(field.getModifiers())
+          && (field.getType() == int[].class || field.getType() == float[].class)) {
+        numberOfArrays++;
+      }
+    }
+    return numberOfArrays;
+  }
+
+  private static long alignMemorySize(long size) {
+    return (size + 7) & ~7L;
   }
 
   public void load(CompoundTag compoundTag) {
@@ -475,13 +845,13 @@ public class PlayerData {
         CompoundTag weaponClassTag = weaponClassesListTag.getCompound(i);
         WeaponClass weaponClass = WeaponClass.valueOf(weaponClassTag.getString(WEAPON_CLASS_TAG));
         if (weaponClass != null && !weaponClassTag.isEmpty()) {
-          weaponClassExperienceMap.put(weaponClass, weaponClassTag.getInt(EXPERIENCE_TAG));
-          weaponClassExperienceBaseMap.put(weaponClass, weaponClassTag.getInt(EXPERIENCE_BASE_TAG));
-          weaponClassLevelMap.put(weaponClass, weaponClassTag.getInt(LEVEL_TAG));
-          weaponClassDamageAdjustmentMap.put(weaponClass,
-              weaponClassTag.getFloat(DAMAGE_ADJUSTMENT));
-          weaponClassDurabilityAdjustmentMap.put(weaponClass,
-              weaponClassTag.getFloat(DURABILITY_ADJUSTMENT));
+          int index = weaponClass.ordinal();
+          this.weaponClassExperience[index] = weaponClassTag.getInt(EXPERIENCE_TAG);
+          this.weaponClassExperienceBase[index] = weaponClassTag.getInt(EXPERIENCE_BASE_TAG);
+          this.weaponClassLevel[index] = weaponClassTag.getInt(LEVEL_TAG);
+          this.weaponClassDamageAdjustment[index] = weaponClassTag.getFloat(DAMAGE_ADJUSTMENT);
+          this.weaponClassDurabilityAdjustment[index] =
+              weaponClassTag.getFloat(DURABILITY_ADJUSTMENT);
         }
       }
     }
@@ -490,8 +860,85 @@ public class PlayerData {
     this.mobKills = compoundTag.getInt(KILLS_MOB_TAG);
     this.playerKills = compoundTag.getInt(KILLS_PLAYER_TAG);
     this.numberOfDeaths = compoundTag.getInt(PLAYER_DEATHS_TAG);
-    this.userUUID = compoundTag.getUUID(UUID_TAG);
+    if (compoundTag.hasUUID(UUID_TAG)) {
+      this.userUUID = compoundTag.getUUID(UUID_TAG);
+    }
     this.username = compoundTag.getString(NAME_TAG);
+
+    // Raw counters only, levels and adjustments are calculated with the experience settings.
+    if (compoundTag.contains(WEAPON_CLASS_USAGE_TAG)) {
+      this.damageDealt = compoundTag.getFloat(DAMAGE_DEALT_TAG);
+      int[] weaponClassUsage = compoundTag.getIntArray(WEAPON_CLASS_USAGE_TAG);
+      for (int index = 0; index < NUMBER_OF_WEAPON_CLASSES; index++) {
+        this.weaponClassItemUsage[index] =
+            index < weaponClassUsage.length ? weaponClassUsage[index] : 0;
+      }
+      this.damageExperienceChanged = true;
+      this.changedWeaponClasses = ALL_WEAPON_CLASSES;
+      updateProgression();
+    }
+  }
+
+  /** Uses the stored weapon class levels as former levels for the level up messages. */
+  private void loadLevelHistory(CompoundTag compoundTag) {
+    ListTag weaponClassesListTag = compoundTag.getList(WEAPON_CLASSES_TAG, 10);
+    for (int i = 0; i < weaponClassesListTag.size(); ++i) {
+      CompoundTag weaponClassTag = weaponClassesListTag.getCompound(i);
+      try {
+        WeaponClass weaponClass = WeaponClass.valueOf(weaponClassTag.getString(WEAPON_CLASS_TAG));
+        int weaponClassLevel = weaponClassTag.getInt(LEVEL_TAG);
+        if (weaponClassLevel > 0) {
+          this.weaponClassLevelHistory[weaponClass.ordinal()] = weaponClassLevel;
+        }
+      } catch (IllegalArgumentException exception) {
+        log.warn("Ignoring unknown weapon class in player record of {}: {}", this.username,
+            weaponClassTag);
+      }
+    }
+  }
+
+  /**
+   * Sums up the counters of all other servers of a shared player record, which are used as offsets
+   * for the own stats of this server.
+   */
+  private void loadServerCounters(CompoundTag compoundTag, String serverSlot) {
+    CompoundTag serverCountersTag = compoundTag.getCompound(SERVER_COUNTERS_TAG);
+    for (String otherServerSlot : serverCountersTag.getAllKeys()) {
+      if (otherServerSlot.equals(serverSlot)) {
+        continue;
+      }
+      CompoundTag countersTag = serverCountersTag.getCompound(otherServerSlot);
+      this.mobKillsOffset += countersTag.getInt(KILLS_MOB_TAG);
+      this.playerKillsOffset += countersTag.getInt(KILLS_PLAYER_TAG);
+      this.deathsOffset += countersTag.getInt(PLAYER_DEATHS_TAG);
+      this.damageDealtOffset += countersTag.getInt(DAMAGE_DEALT_TAG);
+      int[] weaponClassUsage = countersTag.getIntArray(WEAPON_CLASS_USAGE_TAG);
+      for (int index = 0; index < NUMBER_OF_WEAPON_CLASSES && index < weaponClassUsage.length;
+          index++) {
+        this.weaponClassItemUsageOffset[index] += weaponClassUsage[index];
+      }
+    }
+  }
+
+  /** Saves the own counters of this server, without the offsets of all other servers. */
+  public CompoundTag saveServerCounters(CompoundTag compoundTag, String serverSlot) {
+    CompoundTag countersTag = new CompoundTag();
+    countersTag.putInt(KILLS_MOB_TAG, this.mobKills - this.mobKillsOffset);
+    countersTag.putInt(KILLS_PLAYER_TAG, this.playerKills - this.playerKillsOffset);
+    countersTag.putInt(PLAYER_DEATHS_TAG, this.numberOfDeaths - this.deathsOffset);
+    countersTag.putInt(DAMAGE_DEALT_TAG,
+        Math.round(this.damageDealt * 10.0f) - this.damageDealtOffset);
+    int[] weaponClassUsage = new int[NUMBER_OF_WEAPON_CLASSES];
+    for (int index = 0; index < NUMBER_OF_WEAPON_CLASSES; index++) {
+      weaponClassUsage[index] =
+          this.weaponClassItemUsage[index] - this.weaponClassItemUsageOffset[index];
+    }
+    countersTag.putIntArray(WEAPON_CLASS_USAGE_TAG, weaponClassUsage);
+
+    CompoundTag serverCountersTag = new CompoundTag();
+    serverCountersTag.put(serverSlot, countersTag);
+    compoundTag.put(SERVER_COUNTERS_TAG, serverCountersTag);
+    return compoundTag;
   }
 
   public CompoundTag save(CompoundTag compoundTag) {
@@ -536,19 +983,20 @@ public class PlayerData {
     return compoundTag;
   }
 
-  private int getItemUsage(Item item) {
-    return stats.getValue(Stats.ITEM_USED, item);
-  }
-
-  private int getItemsUsage(Set<Item> items) {
-    int usage = 0;
-    for (Item item : items) {
-      int itemUsage = getItemUsage(item);
-      if (itemUsage > 0) {
-        usage += itemUsage;
-      }
-    }
-    return usage;
+  /**
+   * Saves only the raw counters, which are needed to calculate all levels and adjustments with the
+   * same experience settings.
+   */
+  public CompoundTag saveCounters(CompoundTag compoundTag) {
+    compoundTag.putBoolean(PVP_ENABLED_TAG, getPvPEnabledServer());
+    compoundTag.putInt(KILLS_MOB_TAG, this.mobKills);
+    compoundTag.putInt(KILLS_PLAYER_TAG, this.playerKills);
+    compoundTag.putInt(PLAYER_DEATHS_TAG, this.numberOfDeaths);
+    compoundTag.putFloat(DAMAGE_DEALT_TAG, this.damageDealt);
+    compoundTag.putIntArray(WEAPON_CLASS_USAGE_TAG, this.weaponClassItemUsage.clone());
+    compoundTag.putString(NAME_TAG, this.username);
+    compoundTag.putUUID(UUID_TAG, this.userUUID);
+    return compoundTag;
   }
 
   @Override
@@ -557,15 +1005,4 @@ public class PlayerData {
         + this.damageDealt + "]";
   }
 
-  private static float getStatsFloatValue(ServerStatsCounter stats,
-      StatType<ResourceLocation> statType, ResourceLocation state) {
-    if (stats != null) {
-      int value = stats.getValue(statType, state);
-      if (value != 0) {
-        return value / 1.0f;
-      }
-    }
-    return 0.0f;
-  }
-
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.core.Direction;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.common.capabilities.CapabilityToken;
+import net.minecraftforge.common.capabilities.ICapabilityProvider;
+import net.minecraftforge.common.capabilities.RegisterCapabilitiesEvent;
+import net.minecraftforge.common.util.LazyOptional;
+import net.minecraftforge.event.AttachCapabilitiesEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+
+/**
+ * Attaches the player data directly to the server player, so that event handlers could access it
+ * without any UUID lookup.
+ */
+@EventBusSubscriber
+public class PlayerDataCapability {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  public static final Capability<PlayerDataHolder> PLAYER_DATA =
+      CapabilityManager.get(new CapabilityToken<>() {});
+  public static final ResourceLocation PLAYER_DATA_ID =
+      new ResourceLocation(Constants.MOD_ID, "player_data");
+
+  protected PlayerDataCapability() {}
+
+  public static void handleRegisterCapabilitiesEvent(RegisterCapabilitiesEvent event) {
+    log.info("{} Player data capability ...", Constants.LOG_REGISTER_PREFIX);
+    event.register(PlayerDataHolder.class);
+  }
+
+  @SubscribeEvent
+  public static void handleAttachCapabilitiesEvent(AttachCapabilitiesEvent<Entity> event) {
+    if (event.getObject() instanceof ServerPlayer) {
+      event.addCapability(PLAYER_DATA_ID, new PlayerDataProvider());
+    }
+  }
+
+  @SubscribeEvent
+  public static void handlePlayerCloneEvent(PlayerEvent.Clone event) {
+    if (!(event.getEntity() instanceof ServerPlayer serverPlayer)) {
+      return;
+    }
+
+    // Move the player data from the former player entity to the new one.
+    event.getOriginal().reviveCaps();
+    PlayerData playerData = getPlayerData(event.getOriginal());
+    event.getOriginal().invalidateCaps();
+    if (playerData != null) {
+      playerData.setPlayer(serverPlayer);
+      setPlayerData(serverPlayer, playerData);
+    }
+  }
+
+  public static PlayerData getPlayerData(Entity entity) {
+    PlayerDataHolder playerDataHolder = entity.getCapability(PLAYER_DATA).orElse(null);
+    return playerDataHolder != null ? playerDataHolder.getPlayerData() : null;
+  }
+
+  public static void setPlayerData(Entity entity, PlayerData playerData) {
+    entity.getCapability(PLAYER_DATA)
+        .ifPresent(playerDataHolder -> playerDataHolder.setPlayerData(playerData));
+  }
+
+  public static class PlayerDataHolder {
+    private PlayerData playerData;
+
+    public PlayerData getPlayerData() {
+      return this.playerData;
+    }
+
+    public void setPlayerData(PlayerData playerData) {
+      this.playerData = playerData;
+    }
+  }
+
+  private static class PlayerDataProvider implements ICapabilityProvider {
+    private final PlayerDataHolder playerDataHolder = new PlayerDataHolder();
+    private final LazyOptional<PlayerDataHolder> playerDataOptional =
+        LazyOptional.of(() -> playerDataHolder);
+
+    @Override
+    public <T> LazyOptional<T> getCapability(Capability<T> capability, Direction side) {
+      return PLAYER_DATA.orEmpty(capability, playerDataOptional);
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+
+/**
+ * Creates and applies deltas between two saved player data tags. A delta contains only the changed
+ * top level values and only the changed weapon classes.
+ */
+public class PlayerDataDelta {
+
+  protected PlayerDataDelta() {}
+
+  /** Returns the delta from the former to the current tag, which is empty without any changes. */
+  public static CompoundTag create(CompoundTag formerTag, CompoundTag currentTag) {
+    CompoundTag deltaTag = new CompoundTag();
+    for (String key : currentTag.getAllKeys()) {
+      if (PlayerData.WEAPON_CLASSES_TAG.equals(key)) {
+        continue;
+      }
+      Tag value = currentTag.get(key);
+      if (!Objects.equals(value, formerTag.get(key))) {
+        deltaTag.put(key, value);
+      }
+    }
+
+    // Weapon classes are compared by their name, so that only changed entries are included.
+    Map<String, CompoundTag> formerWeaponClasses = getWeaponClasses(formerTag);
+    ListTag changedWeaponClasses = new ListTag();
+    for (CompoundTag weaponClassTag : getWeaponClasses(currentTag).values()) {
+      if (!weaponClassTag.equals(
+          formerWeaponClasses.get(weaponClassTag.getString(PlayerData.WEAPON_CLASS_TAG)))) {
+        changedWeaponClasses.add(weaponClassTag);
+      }
+    }
+    if (!changedWeaponClasses.isEmpty()) {
+      deltaTag.put(PlayerData.WEAPON_CLASSES_TAG, changedWeaponClasses);
+    }
+    return deltaTag;
+  }
+
+  /** Returns a new tag with the delta applied to the given base tag. */
+  public static CompoundTag apply(CompoundTag baseTag, CompoundTag deltaTag) {
+    CompoundTag resultTag = baseTag.copy();
+    for (String key : deltaTag.getAllKeys()) {
+      if (!PlayerData.WEAPON_CLASSES_TAG.equals(key)) {
+        resultTag.put(key, deltaTag.get(key).copy());
+      }
+    }
+
+    if (deltaTag.contains(PlayerData.WEAPON_CLASSES_TAG)) {
+      Map<String, CompoundTag> weaponClasses = getWeaponClasses(resultTag);
+      ListTag changedWeaponClasses =
+          deltaTag.getList(PlayerData.WEAPON_CLASSES_TAG, Tag.TAG_COMPOUND);
+      for (int i = 0; i < changedWeaponClasses.size(); ++i) {
+        CompoundTag weaponClassTag = changedWeaponClasses.getCompound(i);
+        weaponClasses.put(weaponClassTag.getString(PlayerData.WEAPON_CLASS_TAG),
+            weaponClassTag.copy());
+      }
+      ListTag weaponClassesListTag = new ListTag();
+      weaponClassesListTag.addAll(weaponClasses.values());
+      resultTag.put(PlayerData.WEAPON_CLASSES_TAG, weaponClassesListTag);
+    }
+    return resultTag;
+  }
+
+  private static Map<String, CompoundTag> getWeaponClasses(CompoundTag compoundTag) {
+    Map<String, CompoundTag> weaponClasses = new LinkedHashMap<>();
+    ListTag weaponClassesListTag =
+        compoundTag.getList(PlayerData.WEAPON_CLASSES_TAG, Tag.TAG_COMPOUND);
+    for (int i = 0; i < weaponClassesListTag.size(); ++i) {
+      CompoundTag weaponClassTag = weaponClassesListTag.getCompound(i);
+      weaponClasses.put(weaponClassTag.getString(PlayerData.WEAPON_CLASS_TAG), weaponClassTag);
+    }
+    return weaponClasses;
+  }
+
+}
@@ -19,6 +19,8 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
 
+import java.util.Iterator;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -28,21 +30,38 @@ import org.apache.logging.log4j.Logger;
 
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.Item;
 
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.level.LevelEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
 
 @EventBusSubscriber
 public class PlayerDataManager {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
   private static PlayerData localPlayerData = null;
   private static ConcurrentHashMap<UUID, PlayerData> playerMap = new ConcurrentHashMap<>();
 
+  // Players which are waiting for a batched stats update.
+  private static Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+  private static int updateTicker = 0;
+  private static int resyncTicker = 0;
+
+  // Players which are waiting for a full resync, which is spread over several ticks.
+  private static final int RESYNC_PLAYERS_PER_TICK = 2;
+  private static Set<UUID> resyncPlayers = ConcurrentHashMap.newKeySet();
+  private static long updatesRequested = 0;
+  private static long updatesProcessed = 0;
+  private static long updatesDropped = 0;
+
   private static boolean init = false;
 
   protected PlayerDataManager() {}
@@ -61,17 +80,55 @@ public class PlayerDataManager {
     }
   }
 
+  @SubscribeEvent
+  public static void handleServerTickEvent(TickEvent.ServerTickEvent event) {
+    if (event.phase != TickEvent.Phase.END) {
+      return;
+    }
+
+    // Periodic full resync for stat changes which are not covered by any event.
+    int levelResyncInterval = COMMON.levelResyncInterval.get();
+    if (levelResyncInterval > 0 && ++resyncTicker >= levelResyncInterval * 20) {
+      resyncTicker = 0;
+      resyncPlayers();
+    }
+    if (!resyncPlayers.isEmpty()) {
+      processResyncPlayers();
+    }
+
+    if (++updateTicker < COMMON.levelUpdateInterval.get()) {
+      return;
+    }
+    updateTicker = 0;
+    if (dirtyPlayers.isEmpty()) {
+      return;
+    }
+
+    // Process each dirty player only once, regardless of the number of requested updates.
+    Iterator<UUID> dirtyPlayerIterator = dirtyPlayers.iterator();
+    while (dirtyPlayerIterator.hasNext()) {
+      UUID playerUUID = dirtyPlayerIterator.next();
+      dirtyPlayerIterator.remove();
+      updatePlayer(playerUUID);
+      updatesProcessed++;
+    }
+  }
+
   public static PlayerData addPlayer(ServerPlayer player) {
     if (player == null) {
       return null;
     }
-    PlayerData playerData = new PlayerData(player);
+    PlayerData playerData =
+        new PlayerData(player, PlayerServerData.loadPlayerRecord(player.getUUID()));
     playerMap.put(player.getUUID(), playerData);
+    PlayerDataCapability.setPlayerData(player, playerData);
     return playerData;
   }
 
   public static PlayerData getPlayer(ServerPlayer player) {
-    return getPlayer(player.getUUID());
+    // Use the attached player data, the UUID map is only needed as fallback.
+    PlayerData playerData = PlayerDataCapability.getPlayerData(player);
+    return playerData != null ? playerData : getPlayer(player.getUUID());
   }
 
   public static PlayerData getPlayer(UUID playerUUID) {
@@ -81,6 +138,36 @@ public class PlayerDataManager {
     return playerMap.getOrDefault(playerUUID, null);
   }
 
+  /**
+   * Returns the player data of an online player or otherwise reads the stored player record, which
+   * is not cached and only used for queries.
+   */
+  public static PlayerData getOrLoadPlayer(UUID playerUUID) {
+    PlayerData playerData = getPlayer(playerUUID);
+    if (playerData != null) {
+      return playerData;
+    }
+    CompoundTag playerRecord = PlayerServerData.loadPlayerRecord(playerUUID);
+    return playerRecord != null ? new PlayerData(playerRecord) : null;
+  }
+
+  /** Stores the player record, if needed, and removes the player data of the offline player. */
+  public static void removePlayer(UUID playerUUID) {
+    if (playerUUID == null) {
+      return;
+    }
+    // Pending updates are replaced by the final update below and are not coalesced.
+    if (dirtyPlayers.remove(playerUUID)) {
+      updatesDropped++;
+    }
+    resyncPlayers.remove(playerUUID);
+    PlayerData playerData = playerMap.remove(playerUUID);
+    if (playerData != null) {
+      playerData.updateStats();
+      PlayerServerData.savePlayerRecord(playerData);
+    }
+  }
+
   public static PlayerData getLocalPlayer() {
     return localPlayerData;
   }
@@ -89,6 +176,74 @@ public class PlayerDataManager {
     return playerMap;
   }
 
+  /** Marks the player for a batched stats update at the end of the next update interval. */
+  public static void scheduleUpdatePlayer(ServerPlayer player) {
+    scheduleUpdatePlayer(player, null);
+  }
+
+  /** Same as {@link #scheduleUpdatePlayer(ServerPlayer)}, but also refreshes the used item. */
+  public static void scheduleUpdatePlayer(ServerPlayer player, Item usedItem) {
+    PlayerData playerData = getPlayer(player);
+    if (playerData != null) {
+      playerData.markGeneralStatsChanged();
+      playerData.addUsedItem(usedItem);
+    }
+    if (COMMON.levelUpdateInterval.get() <= 0) {
+      updatePlayer(player);
+      return;
+    }
+    updatesRequested++;
+    dirtyPlayers.add(player.getUUID());
+  }
+
+  /**
+   * Marks the used item for a stats update with the next tick at the latest. The item usage is
+   * counted after the item use event, so it is never updated immediately.
+   */
+  public static void scheduleItemUsage(ServerPlayer player, Item usedItem) {
+    PlayerData playerData = getPlayer(player);
+    if (playerData == null || usedItem == null) {
+      return;
+    }
+    playerData.addUsedItem(usedItem);
+    updatesRequested++;
+    dirtyPlayers.add(player.getUUID());
+  }
+
+  /** Schedules a full resync of the stats of all online players, a few players per tick. */
+  public static void resyncPlayers() {
+    resyncPlayers.addAll(playerMap.keySet());
+  }
+
+  private static void processResyncPlayers() {
+    Iterator<UUID> resyncPlayerIterator = resyncPlayers.iterator();
+    for (int i = 0; i < RESYNC_PLAYERS_PER_TICK && resyncPlayerIterator.hasNext(); i++) {
+      UUID playerUUID = resyncPlayerIterator.next();
+      resyncPlayerIterator.remove();
+      PlayerData playerData = getPlayer(playerUUID);
+      if (playerData != null) {
+        playerData.resyncStats();
+        PlayerServerDataClientSync.syncPlayerData(playerData);
+      }
+    }
+  }
+
+  public static long getUpdatesRequested() {
+    return updatesRequested;
+  }
+
+  public static long getUpdatesProcessed() {
+    return updatesProcessed;
+  }
+
+  public static long getUpdatesDropped() {
+    return updatesDropped;
+  }
+
+  public static long getUpdatesCoalesced() {
+    return updatesRequested - updatesProcessed - updatesDropped - dirtyPlayers.size();
+  }
+
   public static void updatePlayer(ServerPlayer player) {
     updatePlayer(player.getUUID());
   }
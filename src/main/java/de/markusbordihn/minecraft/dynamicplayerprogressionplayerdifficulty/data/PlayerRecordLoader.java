@@ -0,0 +1,97 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mojang.authlib.GameProfile;
+
+import net.minecraft.nbt.CompoundTag;
+
+import net.minecraftforge.event.entity.player.PlayerNegotiationEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.PlayerRecordStorage;
+
+/**
+ * Read-ahead stage for the player records. The record of a joining player is read from the
+ * {@link PlayerRecordStorage} on a dedicated thread during the login negotiation, so that the
+ * server thread is not waiting for a batch write, compaction or file lock of the storage.
+ */
+@EventBusSubscriber
+public class PlayerRecordLoader {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final int PRELOAD_TIMEOUT_SECONDS = 10;
+  private static final int PRELOAD_EXPIRE_SECONDS = 60;
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, Constants.MOD_ID + "-record-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Preloaded records of joining players, an empty record means that there is no stored record.
+  private static Cache<UUID, CompoundTag> preloadedRecords = CacheBuilder.newBuilder()
+      .expireAfterWrite(PRELOAD_EXPIRE_SECONDS, TimeUnit.SECONDS).build();
+
+  protected PlayerRecordLoader() {}
+
+  @SubscribeEvent
+  public static void handlePlayerNegotiationEvent(PlayerNegotiationEvent event) {
+    GameProfile gameProfile = event.getProfile();
+    UUID playerUUID = gameProfile != null ? gameProfile.getId() : null;
+    if (playerUUID == null || !PlayerServerData.isStoredRecordNeeded(playerUUID)) {
+      return;
+    }
+
+    // The login is only completed after the record was read or the timeout was reached.
+    event.enqueueWork(CompletableFuture.runAsync(() -> preloadPlayerRecord(playerUUID), executor)
+        .orTimeout(PRELOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Returns and removes the preloaded record of the player, an empty record if there is no stored
+   * record or null if the record was not preloaded.
+   */
+  public static CompoundTag takePreloadedRecord(UUID playerUUID) {
+    return playerUUID != null ? preloadedRecords.asMap().remove(playerUUID) : null;
+  }
+
+  private static void preloadPlayerRecord(UUID playerUUID) {
+    long startTime = System.currentTimeMillis();
+    CompoundTag storedRecord = PlayerServerData.readPlayerRecord(playerUUID);
+    preloadedRecords.put(playerUUID, storedRecord != null ? storedRecord : new CompoundTag());
+    log.debug("{} preloaded player record {} in {}ms.", Constants.LOG_ICON_NAME, playerUUID,
+        System.currentTimeMillis() - startTime);
+  }
+
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.nbt.CompoundTag;
+
+import net.minecraftforge.event.server.ServerStoppedEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.PlayerRecordStorage;
+
+/**
+ * Write-behind stage for the player records. The records are captured as snapshots on the server
+ * thread and written in batches to the {@link PlayerRecordStorage} on a dedicated I/O thread.
+ */
+@EventBusSubscriber
+public class PlayerRecordWriter {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final int FLUSH_TIMEOUT_SECONDS = 30;
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, Constants.MOD_ID + "-record-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static volatile PlayerRecordStorage storage = null;
+
+  // Snapshots which are queued or currently written, used to read the latest record.
+  private static final Map<UUID, CompoundTag> pendingRecords = new ConcurrentHashMap<>();
+
+  // Snapshots of failed batches, which are written again with the next batch.
+  private static final Map<UUID, CompoundTag> failedRecords = new ConcurrentHashMap<>();
+
+  // Metrics
+  private static final AtomicInteger queueDepth = new AtomicInteger();
+  private static final AtomicLong batchesWritten = new AtomicLong();
+  private static final AtomicLong recordsWritten = new AtomicLong();
+  private static final AtomicLong recordsFailed = new AtomicLong();
+  private static final AtomicLong totalWriteTime = new AtomicLong();
+  private static final AtomicLong maxWriteTime = new AtomicLong();
+
+  protected PlayerRecordWriter() {}
+
+  @SubscribeEvent
+  public static void handleServerStoppingEvent(ServerStoppingEvent event) {
+    flush();
+  }
+
+  @SubscribeEvent
+  public static void handleServerStoppedEvent(ServerStoppedEvent event) {
+    // The final world save happens after the stopping event, so flush again.
+    flush();
+    if (!failedRecords.isEmpty()) {
+      log.error("{} unable to write {} player records before the server stopped!",
+          Constants.LOG_ICON_NAME, failedRecords.size());
+    }
+    setStorage(null);
+  }
+
+  /** Uses the storage for all following batches and closes the former storage, if any. */
+  public static void setStorage(PlayerRecordStorage playerRecordStorage) {
+    PlayerRecordStorage formerStorage = storage;
+    if (formerStorage == playerRecordStorage) {
+      return;
+    }
+    storage = playerRecordStorage;
+    if (formerStorage != null) {
+      executor.execute(() -> {
+        try {
+          formerStorage.close();
+        } catch (IOException exception) {
+          log.error("{} unable to close {} storage: {}", Constants.LOG_ICON_NAME,
+              formerStorage.getName(), exception);
+        }
+      });
+    }
+  }
+
+  public static PlayerRecordStorage getStorage() {
+    return storage;
+  }
+
+  /**
+   * Queues the snapshots as single batch, which is written on the I/O thread. Snapshots of failed
+   * batches are written again with this batch.
+   */
+  public static void submit(List<PlayerRecord> playerRecords) {
+    PlayerRecordStorage playerRecordStorage = storage;
+    if (playerRecordStorage == null) {
+      return;
+    }
+
+    // Failed snapshots are still pending and come first, so that newer snapshots are winning.
+    List<PlayerRecord> batchRecords = new ArrayList<>();
+    Iterator<Map.Entry<UUID, CompoundTag>> failedIterator = failedRecords.entrySet().iterator();
+    while (failedIterator.hasNext()) {
+      Map.Entry<UUID, CompoundTag> failedRecord = failedIterator.next();
+      failedIterator.remove();
+      batchRecords.add(new PlayerRecord(failedRecord.getKey(), failedRecord.getValue()));
+    }
+    for (PlayerRecord playerRecord : playerRecords) {
+      pendingRecords.put(playerRecord.playerUUID, playerRecord.compoundTag);
+      batchRecords.add(playerRecord);
+    }
+    if (batchRecords.isEmpty()) {
+      return;
+    }
+    queueDepth.addAndGet(batchRecords.size());
+    executor.execute(() -> writeBatch(playerRecordStorage, batchRecords));
+  }
+
+  /** Returns the latest not yet written snapshot of the player record, if any. */
+  public static CompoundTag getPendingRecord(UUID playerUUID) {
+    return pendingRecords.get(playerUUID);
+  }
+
+  /** Blocks until all queued records are written. */
+  public static void flush() {
+    if (!failedRecords.isEmpty()) {
+      submit(List.of());
+    }
+    if (queueDepth.get() <= 0) {
+      return;
+    }
+    log.info("{} waiting for {} player records to be written ...", Constants.LOG_ICON_NAME,
+        queueDepth.get());
+    try {
+      executor.submit(() -> {}).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException exception) {
+      log.error("{} unable to flush player records: {}", Constants.LOG_ICON_NAME, exception);
+    }
+  }
+
+  private static void writeBatch(PlayerRecordStorage playerRecordStorage,
+      List<PlayerRecord> playerRecords) {
+    // The latest snapshot per player wins, if the same player is included more than once.
+    Map<UUID, CompoundTag> records = new LinkedHashMap<>();
+    for (PlayerRecord playerRecord : playerRecords) {
+      records.put(playerRecord.playerUUID, playerRecord.compoundTag);
+    }
+
+    long startTime = System.nanoTime();
+    boolean written = false;
+    try {
+      playerRecordStorage.save(records);
+      recordsWritten.addAndGet(records.size());
+      written = true;
+    } catch (IOException | RuntimeException exception) {
+      log.error("{} unable to write {} player records to {} storage, retrying with next batch: {}",
+          Constants.LOG_ICON_NAME, records.size(), playerRecordStorage.getName(), exception);
+      recordsFailed.addAndGet(records.size());
+    } finally {
+      long writeTime = System.nanoTime() - startTime;
+      totalWriteTime.addAndGet(writeTime);
+      maxWriteTime.accumulateAndGet(writeTime, Math::max);
+
+      for (Map.Entry<UUID, CompoundTag> record : records.entrySet()) {
+        if (written) {
+          pendingRecords.remove(record.getKey(), record.getValue());
+        } else if (pendingRecords.get(record.getKey()) == record.getValue()) {
+          // Keep the snapshot pending, unless there is already a newer snapshot.
+          failedRecords.putIfAbsent(record.getKey(), record.getValue());
+        }
+      }
+      queueDepth.addAndGet(-playerRecords.size());
+      batchesWritten.incrementAndGet();
+    }
+  }
+
+  public static int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  public static long getBatchesWritten() {
+    return batchesWritten.get();
+  }
+
+  public static long getRecordsWritten() {
+    return recordsWritten.get();
+  }
+
+  public static long getRecordsFailed() {
+    return recordsFailed.get();
+  }
+
+  /** Average write latency per record in microseconds. */
+  public static long getAverageWriteLatency() {
+    long numberOfRecords = recordsWritten.get() + recordsFailed.get();
+    return numberOfRecords > 0 ? totalWriteTime.get() / numberOfRecords / 1000 : 0;
+  }
+
+  /** Max. write latency per batch in microseconds. */
+  public static long getMaxWriteLatency() {
+    return maxWriteTime.get() / 1000;
+  }
+
+  /** Snapshot of a single player record, which is not changed after its creation. */
+  public static class PlayerRecord {
+    private final UUID playerUUID;
+    private final CompoundTag compoundTag;
+
+    public PlayerRecord(UUID playerUUID, CompoundTag compoundTag) {
+      this.playerUUID = playerUUID;
+      this.compoundTag = compoundTag;
+    }
+  }
+
+}
@@ -19,36 +19,63 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.level.storage.LevelResource;
 
 import net.minecraftforge.event.server.ServerAboutToStartEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.PlayerRecordStorage;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.PlayerRecordStorageManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage.SharedPlayerRecordStorage;
 
+/**
+ * Player data storage with one record per player and an index of all stored players. The index is
+ * stored inside the overworld saved data and loaded at startup, the records are only read on demand
+ * from the configured {@link PlayerRecordStorage} and only dirty records are written with the next
+ * save by the {@link PlayerRecordWriter}. Records of joining players are read ahead by the
+ * {@link PlayerRecordLoader}. With a shared storage the records are read from the shared
+ * directory, even if the player was never on this server.
+ */
 public class PlayerServerData extends SavedData {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
   private static final String PLAYER_FILE_ID = Constants.MOD_ID;
+  private static final String PLAYER_RECORD_DIRECTORY = Constants.MOD_ID + "_players";
 
   public static final String PLAYER_DATA_TAG = "PlayerData";
+  public static final String PLAYER_INDEX_TAG = "PlayerIndex";
 
   private static MinecraftServer server;
   private static PlayerServerData data;
 
+  // Index of all stored player records with the last known player name.
+  private final Map<UUID, String> playerIndex = new ConcurrentHashMap<>();
+
+  // Records from the former single file format, which are written as records with the next save.
+  private final Map<UUID, CompoundTag> legacyRecords = new ConcurrentHashMap<>();
+
   public PlayerServerData() {
-    this.setDirty();
+    // Only changed player records are marking the data as dirty.
   }
 
   @SubscribeEvent
@@ -62,6 +89,32 @@ public class PlayerServerData extends SavedData {
     PlayerServerData playerServerData = new PlayerServerData();
     log.info("{} loading data ...", Constants.LOG_ICON_NAME);
 
+    // Player index
+    ListTag playerIndexListTag = compoundTag.getList(PLAYER_INDEX_TAG, Tag.TAG_COMPOUND);
+    for (int i = 0; i < playerIndexListTag.size(); ++i) {
+      CompoundTag playerIndexTag = playerIndexListTag.getCompound(i);
+      if (playerIndexTag.hasUUID(PlayerData.UUID_TAG)) {
+        playerServerData.playerIndex.put(playerIndexTag.getUUID(PlayerData.UUID_TAG),
+            playerIndexTag.getString(PlayerData.NAME_TAG));
+      }
+    }
+
+    // Migrate player data from the former single file format.
+    ListTag playerDataListTag = compoundTag.getList(PLAYER_DATA_TAG, Tag.TAG_COMPOUND);
+    for (int i = 0; i < playerDataListTag.size(); ++i) {
+      CompoundTag playerDataTag = playerDataListTag.getCompound(i);
+      if (playerDataTag.hasUUID(PlayerData.UUID_TAG)) {
+        UUID playerUUID = playerDataTag.getUUID(PlayerData.UUID_TAG);
+        playerServerData.playerIndex.put(playerUUID, playerDataTag.getString(PlayerData.NAME_TAG));
+        playerServerData.legacyRecords.put(playerUUID, playerDataTag);
+      }
+    }
+
+    if (!playerServerData.legacyRecords.isEmpty()) {
+      playerServerData.setDirty();
+    }
+    log.info("{} found {} stored player records ({} to migrate).", Constants.LOG_ICON_NAME,
+        playerServerData.playerIndex.size(), playerServerData.legacyRecords.size());
     return playerServerData;
   }
 
@@ -73,6 +126,8 @@ public class PlayerServerData extends SavedData {
 
     log.info("{} preparing data for {}", Constants.LOG_ICON_NAME, server);
     PlayerServerData.server = server;
+    PlayerRecordStorageManager.prepareServerSlot(server);
+    PlayerRecordWriter.setStorage(PlayerRecordStorageManager.open(getPlayerRecordDirectory()));
 
     // Using a global approach and storing relevant data in the overworld only!
     ServerLevel serverLevel = server.getLevel(Level.OVERWORLD);
@@ -89,22 +144,147 @@ public class PlayerServerData extends SavedData {
     return PLAYER_FILE_ID;
   }
 
+  /** Marks the storage as dirty, so that dirty player records are written with the next save. */
+  public static void markDirty() {
+    if (data != null) {
+      data.setDirty();
+    }
+  }
+
+  public static boolean hasPlayerRecord(UUID playerUUID) {
+    return data != null && playerUUID != null && data.playerIndex.containsKey(playerUUID);
+  }
+
+  public static int getNumberOfPlayerRecords() {
+    return data != null ? data.playerIndex.size() : 0;
+  }
+
+  /** Reads the stored player record, if any. */
+  public static CompoundTag loadPlayerRecord(UUID playerUUID) {
+    // Players of a shared storage could have a record from another server only.
+    boolean sharedStorage = PlayerRecordStorageManager.isSharedStorage();
+    if (data == null || playerUUID == null || !sharedStorage && !hasPlayerRecord(playerUUID)) {
+      return null;
+    }
+    CompoundTag legacyRecord = data.legacyRecords.get(playerUUID);
+    if (legacyRecord != null) {
+      return legacyRecord;
+    }
+    CompoundTag pendingRecord = PlayerRecordWriter.getPendingRecord(playerUUID);
+    if (pendingRecord != null && !sharedStorage) {
+      return pendingRecord;
+    }
+
+    // Logins are served from the record, which was already read during the login negotiation.
+    CompoundTag storedRecord = PlayerRecordLoader.takePreloadedRecord(playerUUID);
+    if (storedRecord == null) {
+      storedRecord = readPlayerRecord(playerUUID);
+    } else if (storedRecord.isEmpty()) {
+      storedRecord = null;
+    }
+
+    // Pending records are missing the counters of the other servers.
+    return pendingRecord != null ? SharedPlayerRecordStorage.merge(storedRecord, pendingRecord)
+        : storedRecord;
+  }
+
+  /** Returns true, if the stored player record needs to be read from the storage for a login. */
+  public static boolean isStoredRecordNeeded(UUID playerUUID) {
+    boolean sharedStorage = PlayerRecordStorageManager.isSharedStorage();
+    return data != null && playerUUID != null && (sharedStorage || hasPlayerRecord(playerUUID))
+        && !data.legacyRecords.containsKey(playerUUID)
+        && (sharedStorage || PlayerRecordWriter.getPendingRecord(playerUUID) == null);
+  }
+
+  /**
+   * Reads the player record from the storage, which could block until a running batch write of the
+   * storage is done.
+   */
+  public static CompoundTag readPlayerRecord(UUID playerUUID) {
+    PlayerRecordStorage storage = PlayerRecordWriter.getStorage();
+    if (storage == null) {
+      return null;
+    }
+    try {
+      return storage.load(playerUUID);
+    } catch (IOException exception) {
+      log.error("{} unable to read player record {} from {} storage: {}", Constants.LOG_ICON_NAME,
+          playerUUID, storage.getName(), exception);
+    }
+    return null;
+  }
+
+  /** Queues the player record for writing, if the player data is dirty. */
+  public static boolean savePlayerRecord(PlayerData playerData) {
+    PlayerRecordWriter.PlayerRecord playerRecord = createPlayerRecord(playerData);
+    if (playerRecord == null) {
+      return false;
+    }
+    PlayerRecordWriter.submit(List.of(playerRecord));
+    return true;
+  }
+
+  /** Snapshot of the dirty player data, which is written later on the I/O thread. */
+  private static PlayerRecordWriter.PlayerRecord createPlayerRecord(PlayerData playerData) {
+    if (data == null || playerData == null || playerData.getUserUUID() == null
+        || !playerData.isDirty()) {
+      return null;
+    }
+    UUID playerUUID = playerData.getUserUUID();
+    CompoundTag playerDataCompoundTag = new CompoundTag();
+    playerData.save(playerDataCompoundTag);
+    if (PlayerRecordStorageManager.isSharedStorage()) {
+      playerData.saveServerCounters(playerDataCompoundTag,
+          PlayerRecordStorageManager.getServerSlot());
+    }
+    playerData.markSaved();
+    data.playerIndex.put(playerUUID, playerData.getUsername());
+    data.legacyRecords.remove(playerUUID);
+    data.setDirty();
+    return new PlayerRecordWriter.PlayerRecord(playerUUID, playerDataCompoundTag);
+  }
+
+  private static Path getPlayerRecordDirectory() {
+    if (PlayerRecordStorageManager.isSharedStorage()) {
+      return PlayerRecordStorageManager.getSharedDirectory();
+    }
+    return server.getWorldPath(LevelResource.ROOT).resolve("data")
+        .resolve(PLAYER_RECORD_DIRECTORY);
+  }
+
   @Override
   public CompoundTag save(CompoundTag compoundTag) {
     log.info("{} saving data ... {}", Constants.LOG_ICON_NAME, this);
 
-    // Iterate throw all players and store their player data.
-    ListTag playerDataListTag = new ListTag();
-    Iterator<PlayerData> playerDataIterator = PlayerDataManager.getPlayerMap().values().iterator();
-    while (playerDataIterator.hasNext()) {
-      PlayerData playerData = playerDataIterator.next();
-      if (playerData != null) {
-        CompoundTag playerDataCompoundTag = new CompoundTag();
-        playerData.save(playerDataCompoundTag);
-        playerDataListTag.add(playerDataCompoundTag);
+    // Snapshot the dirty player records only, which are written as single batch.
+    List<PlayerRecordWriter.PlayerRecord> playerRecords = new ArrayList<>();
+    for (PlayerData playerData : PlayerDataManager.getPlayerMap().values()) {
+      PlayerRecordWriter.PlayerRecord playerRecord = createPlayerRecord(playerData);
+      if (playerRecord != null) {
+        playerRecords.add(playerRecord);
       }
     }
-    compoundTag.put(PLAYER_DATA_TAG, playerDataListTag);
+
+    // Migrate remaining records from the former single file format.
+    for (Map.Entry<UUID, CompoundTag> legacyRecord : this.legacyRecords.entrySet()) {
+      playerRecords.add(
+          new PlayerRecordWriter.PlayerRecord(legacyRecord.getKey(), legacyRecord.getValue()));
+      this.legacyRecords.remove(legacyRecord.getKey());
+    }
+    PlayerRecordWriter.submit(playerRecords);
+    log.info("{} saving touched {} of {} loaded player records ({} stored).",
+        Constants.LOG_ICON_NAME, playerRecords.size(), PlayerDataManager.getPlayerMap().size(),
+        this.playerIndex.size());
+
+    // Player index
+    ListTag playerIndexListTag = new ListTag();
+    for (Map.Entry<UUID, String> playerIndexEntry : this.playerIndex.entrySet()) {
+      CompoundTag playerIndexTag = new CompoundTag();
+      playerIndexTag.putUUID(PlayerData.UUID_TAG, playerIndexEntry.getKey());
+      playerIndexTag.putString(PlayerData.NAME_TAG, playerIndexEntry.getValue());
+      playerIndexListTag.add(playerIndexTag);
+    }
+    compoundTag.put(PLAYER_INDEX_TAG, playerIndexListTag);
 
     return compoundTag;
   }
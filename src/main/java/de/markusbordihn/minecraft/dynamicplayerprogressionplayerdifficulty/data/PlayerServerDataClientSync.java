@@ -19,24 +19,81 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import net.minecraft.nbt.CompoundTag;
 
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.NetworkHandler;
 
+@EventBusSubscriber
 public class PlayerServerDataClientSync {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
+  private static final WeaponClass[] WEAPON_CLASSES = WeaponClass.values();
+
+  // Client visible values and time of the last sync per player.
+  private static ConcurrentHashMap<UUID, SyncState> syncStateMap = new ConcurrentHashMap<>();
+  private static long syncsSkipped = 0;
+  private static int keepAliveTicker = 0;
+
   protected PlayerServerDataClientSync() {}
 
+  @SubscribeEvent
+  public static void handleServerTickEvent(TickEvent.ServerTickEvent event) {
+    if (event.phase != TickEvent.Phase.END || ++keepAliveTicker < 20) {
+      return;
+    }
+    keepAliveTicker = 0;
+
+    // Periodic keep-alive sync for players without any client visible changes.
+    int keepAliveInterval = COMMON.syncKeepAliveInterval.get();
+    if (keepAliveInterval <= 0 || syncStateMap.isEmpty()) {
+      return;
+    }
+    long currentTime = System.currentTimeMillis();
+    for (Map.Entry<UUID, SyncState> syncStateEntry : syncStateMap.entrySet()) {
+      if (currentTime - syncStateEntry.getValue().time >= keepAliveInterval * 1000L) {
+        PlayerData playerData = PlayerDataManager.getPlayer(syncStateEntry.getKey());
+        if (playerData != null) {
+          syncPlayerData(playerData, true);
+        } else {
+          syncStateMap.remove(syncStateEntry.getKey());
+        }
+      }
+    }
+  }
+
   public static void syncPlayerData(PlayerData playerData) {
+    syncPlayerData(playerData, false);
+  }
+
+  /**
+   * Syncs the player data to the client according the sync policy. Forced syncs, e.g. for login,
+   * and keep-alive syncs are always sent.
+   */
+  public static void syncPlayerData(PlayerData playerData, boolean force) {
     if (playerData == null) {
       return;
     }
+    if (!shouldSyncPlayerData(playerData, force)) {
+      syncsSkipped++;
+      return;
+    }
     log.debug("Sync player data for {} with {}", playerData.getUserUUID(), playerData);
     CompoundTag data = exportPlayerData(playerData);
     if (!data.isEmpty()) {
@@ -47,9 +104,89 @@ public class PlayerServerDataClientSync {
   public static CompoundTag exportPlayerData(PlayerData playerData) {
     CompoundTag compoundTag = new CompoundTag();
     if (playerData != null && playerData.getUserUUID() != null) {
-      playerData.save(compoundTag);
+      if (COMMON.syncClientDerivation.get()) {
+        playerData.saveCounters(compoundTag);
+      } else {
+        playerData.save(compoundTag);
+      }
     }
     return compoundTag;
   }
 
+  public static long getSyncsSkipped() {
+    return syncsSkipped;
+  }
+
+  public static void removePlayer(UUID playerUUID) {
+    if (playerUUID != null) {
+      syncStateMap.remove(playerUUID);
+    }
+  }
+
+  private static boolean shouldSyncPlayerData(PlayerData playerData, boolean force) {
+    SyncPolicy syncPolicy = COMMON.syncPolicy.get();
+    UUID playerUUID = playerData.getUserUUID();
+    if (syncPolicy == SyncPolicy.ALWAYS || playerUUID == null) {
+      return true;
+    }
+
+    // Sync if the client visible values have changed or the keep-alive interval is reached.
+    long currentTime = System.currentTimeMillis();
+    int[] signature = getSyncSignature(playerData, syncPolicy);
+    SyncState syncState = syncStateMap.get(playerUUID);
+    int keepAliveInterval = COMMON.syncKeepAliveInterval.get();
+    if (!force && syncState != null && Arrays.equals(syncState.signature, signature)
+        && (keepAliveInterval <= 0 || currentTime - syncState.time < keepAliveInterval * 1000L)) {
+      return false;
+    }
+    syncStateMap.put(playerUUID, new SyncState(signature, currentTime));
+    return true;
+  }
+
+  private static int[] getSyncSignature(PlayerData playerData, SyncPolicy syncPolicy) {
+    boolean experienceQuantized = syncPolicy == SyncPolicy.EXPERIENCE_QUANTIZED;
+    int signatureSize = 10 + WEAPON_CLASSES.length * 3;
+    if (experienceQuantized) {
+      signatureSize += 2 + WEAPON_CLASSES.length;
+    }
+    int[] signature = new int[signatureSize];
+    int index = 0;
+    signature[index++] = playerData.getPvPEnabled() ? 1 : 0;
+    signature[index++] = playerData.getNumberOfDeaths();
+    signature[index++] = playerData.getExperiencePenaltyGeneral();
+    signature[index++] = playerData.getExperiencePenaltyWeaponClass();
+    signature[index++] = playerData.getDamageLevelMob();
+    signature[index++] = playerData.getDamageLevelPlayer();
+    signature[index++] = Float.floatToIntBits(playerData.getDealtDamageAdjustmentMob());
+    signature[index++] = Float.floatToIntBits(playerData.getDealtDamageAdjustmentPlayer());
+    signature[index++] = Float.floatToIntBits(playerData.getHurtDamageAdjustmentMob());
+    signature[index++] = Float.floatToIntBits(playerData.getHurtDamageAdjustmentPlayer());
+    for (WeaponClass weaponClass : WEAPON_CLASSES) {
+      signature[index++] = playerData.getWeaponClassLevel(weaponClass);
+      signature[index++] =
+          Float.floatToIntBits(playerData.getWeaponClassDamageAdjustment(weaponClass));
+      signature[index++] =
+          Float.floatToIntBits(playerData.getWeaponClassDurabilityAdjustment(weaponClass));
+    }
+    if (experienceQuantized) {
+      int experienceQuantum = COMMON.syncExperienceQuantum.get();
+      signature[index++] = playerData.getDamageExperienceMob() / experienceQuantum;
+      signature[index++] = playerData.getDamageExperiencePlayer() / experienceQuantum;
+      for (WeaponClass weaponClass : WEAPON_CLASSES) {
+        signature[index++] = playerData.getWeaponClassExperience(weaponClass) / experienceQuantum;
+      }
+    }
+    return signature;
+  }
+
+  private static class SyncState {
+    private final int[] signature;
+    private final long time;
+
+    private SyncState(int[] signature, long time) {
+      this.signature = signature;
+      this.time = time;
+    }
+  }
+
 }
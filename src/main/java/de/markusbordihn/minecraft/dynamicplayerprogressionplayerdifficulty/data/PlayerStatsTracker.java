@@ -0,0 +1,183 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+import net.minecraft.stats.ServerStatsCounter;
+import net.minecraft.stats.Stat;
+import net.minecraft.stats.StatType;
+
+/**
+ * Stat change pipeline for a single player.
+ *
+ * Event handlers mark the stats which could have been changed by an action like a kill or a block
+ * break. With the next poll only these stats are read from the {@link ServerStatsCounter} and
+ * compared with their last known value, every difference is published as {@link StatChange} to
+ * the subscribers.
+ */
+public class PlayerStatsTracker {
+
+  // Approximated memory layout (compressed oops) of the fastutil open hash collections.
+  private static final int OBJECT_SIZE = 56;
+  private static final int ARRAY_HEADER_SIZE = 16;
+  private static final int REFERENCE_SIZE = 4;
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final long MIN_TABLE_SIZE = 32;
+
+  private final Reference2IntOpenHashMap<Stat<?>> statValues = new Reference2IntOpenHashMap<>();
+  private final ReferenceOpenHashSet<Stat<?>> changedStats = new ReferenceOpenHashSet<>();
+  private final List<StatChangeListener> listeners = new ArrayList<>();
+
+  public void subscribe(StatChangeListener listener) {
+    if (listener != null && !this.listeners.contains(listener)) {
+      this.listeners.add(listener);
+    }
+  }
+
+  public void unsubscribe(StatChangeListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /** Marks the stat as possibly changed, so that it will be checked with the next poll. */
+  public void markChanged(Stat<?> stat) {
+    if (stat != null) {
+      this.changedStats.add(stat);
+    }
+  }
+
+  public boolean hasChanges() {
+    return !this.changedStats.isEmpty();
+  }
+
+  /** Reads all marked stats and publishes their deltas, returns the number of changed stats. */
+  public int poll(ServerStatsCounter stats) {
+    if (stats == null || this.changedStats.isEmpty()) {
+      return 0;
+    }
+    int numberOfChanges = 0;
+    for (Stat<?> stat : this.changedStats) {
+      int value = stats.getValue(stat);
+      int delta = value - this.statValues.getInt(stat);
+      if (delta != 0) {
+        this.statValues.put(stat, value);
+        publish(new StatChange(stat, value, delta));
+        numberOfChanges++;
+      }
+    }
+    this.changedStats.clear();
+    return numberOfChanges;
+  }
+
+  /** Stores the current value of the stat as last known value, without publishing any change. */
+  public void reset(Stat<?> stat, int value) {
+    this.changedStats.remove(stat);
+    if (value != 0) {
+      this.statValues.put(stat, value);
+    } else {
+      this.statValues.removeInt(stat);
+    }
+  }
+
+  public void clear() {
+    this.changedStats.clear();
+    this.statValues.clear();
+  }
+
+  public int getNumberOfTrackedStats() {
+    return this.statValues.size();
+  }
+
+  /** Estimated memory usage of the tracked stats in bytes. */
+  public long getEstimatedMemoryUsage() {
+    long statValuesTableSize = getEstimatedTableSize(this.statValues.size());
+    long changedStatsTableSize = getEstimatedTableSize(this.changedStats.size());
+    return 3L * OBJECT_SIZE
+        + alignMemorySize(ARRAY_HEADER_SIZE + statValuesTableSize * REFERENCE_SIZE)
+        + alignMemorySize(ARRAY_HEADER_SIZE + statValuesTableSize * 4L)
+        + alignMemorySize(ARRAY_HEADER_SIZE + changedStatsTableSize * REFERENCE_SIZE)
+        + alignMemorySize(ARRAY_HEADER_SIZE + this.listeners.size() * (long) REFERENCE_SIZE);
+  }
+
+  /** Table size of a fastutil open hash collection, which is a power of two plus one. */
+  private static long getEstimatedTableSize(int size) {
+    long minSize = Math.max(1, (long) Math.ceil(size / LOAD_FACTOR));
+    return Math.max(MIN_TABLE_SIZE, Long.highestOneBit(minSize * 2 - 1)) + 1;
+  }
+
+  private static long alignMemorySize(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private void publish(StatChange statChange) {
+    for (StatChangeListener listener : this.listeners) {
+      listener.onStatChange(statChange);
+    }
+  }
+
+  public interface StatChangeListener {
+    void onStatChange(StatChange statChange);
+  }
+
+  public static class StatChange {
+
+    private final Stat<?> stat;
+    private final int value;
+    private final int delta;
+
+    public StatChange(Stat<?> stat, int value, int delta) {
+      this.stat = stat;
+      this.value = value;
+      this.delta = delta;
+    }
+
+    public Stat<?> getStat() {
+      return this.stat;
+    }
+
+    public StatType<?> getType() {
+      return this.stat.getType();
+    }
+
+    public Object getKey() {
+      return this.stat.getValue();
+    }
+
+    public int getValue() {
+      return this.value;
+    }
+
+    public int getDelta() {
+      return this.delta;
+    }
+
+    @Override
+    public String toString() {
+      return "StatChange[" + this.stat.getName() + ", value=" + this.value + ", delta=" + this.delta
+          + "]";
+    }
+  }
+
+}
@@ -138,9 +138,11 @@ public enum WeaponClass {
   }
 
   public float getDamageAdjustment(int level, int maxLevel) {
-    float adjustment = getDamageAdjustment();
-    return adjustment == 0 || level == 1 ? 0.0f
-        : 1.0f + ((((float) level / maxLevel) * adjustment) / 100f);
+    ExperienceTables experienceTables = Experience.getExperienceTables();
+    if (experienceTables.getMaxLevel() == maxLevel) {
+      return experienceTables.getWeaponClassDamageAdjustment(this, level);
+    }
+    return ExperienceTables.calculateAdjustment((int) getDamageAdjustment(), level, maxLevel);
   }
 
   public int getDurabilityAdjustment() {
@@ -202,9 +204,11 @@ public enum WeaponClass {
   }
 
   public float getDurabilityAdjustment(int level, int maxLevel) {
-    int adjustment = getDurabilityAdjustment();
-    return adjustment == 0 || level == 1 ? 0.0f
-        : 1.0f + ((((float) level / maxLevel) * adjustment) / 100f);
+    ExperienceTables experienceTables = Experience.getExperienceTables();
+    if (experienceTables.getMaxLevel() == maxLevel) {
+      return experienceTables.getWeaponClassDurabilityAdjustment(this, level);
+    }
+    return ExperienceTables.calculateAdjustment(getDurabilityAdjustment(), level, maxLevel);
   }
 
   public Set<Item> getItems() {
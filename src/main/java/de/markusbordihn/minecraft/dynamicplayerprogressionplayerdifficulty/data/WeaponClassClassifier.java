@@ -0,0 +1,203 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import net.minecraft.world.item.Item;
+
+/**
+ * Compiled version of the {@link WeaponClassDataInternal} rules, which classifies a single item
+ * name in one pass instead of checking every rule set of every weapon class.
+ *
+ * Each weapon class gets a bit according its position in the mapping order, matches are collected
+ * as bit mask and the lowest bit wins. This keeps the same priority as checking the weapon classes
+ * one after another.
+ */
+public class WeaponClassClassifier {
+
+  // Marker for ignored suffixes like "_cast", outside of the weapon class bits.
+  private static final int IGNORED_SUFFIX_BIT = 1 << 31;
+
+  private final WeaponClass[] weaponClasses;
+  private final Class<?>[] itemTypeClasses;
+  private final Map<String, Integer> nameMasks = new HashMap<>();
+  private final Node suffixRoot = new Node();
+  private final Node keywordRoot = new Node();
+
+  public WeaponClassClassifier(WeaponClass[] weaponClasses, Map<WeaponClass, Class<?>> itemTypes) {
+    if (weaponClasses.length >= 31) {
+      throw new IllegalArgumentException("Too many weapon classes for the classifier bit mask!");
+    }
+    this.weaponClasses = weaponClasses.clone();
+    this.itemTypeClasses = new Class<?>[weaponClasses.length];
+
+    for (int index = 0; index < weaponClasses.length; index++) {
+      WeaponClass weaponClass = weaponClasses[index];
+      int bit = 1 << index;
+      this.itemTypeClasses[index] = itemTypes.get(weaponClass);
+
+      Set<String> itemNames = WeaponClassDataInternal.weaponClassItemsNames.get(weaponClass);
+      if (itemNames != null) {
+        for (String itemName : itemNames) {
+          if (!itemName.isEmpty()) {
+            nameMasks.merge(itemName, bit, (a, b) -> a | b);
+          }
+        }
+      }
+
+      Set<String> itemSuffixes = WeaponClassDataInternal.weaponClassItemsSuffixes.get(weaponClass);
+      if (itemSuffixes != null) {
+        for (String suffix : itemSuffixes) {
+          addSuffix(suffix, bit);
+        }
+      }
+
+      Set<String> itemKeywords = WeaponClassDataInternal.weaponClassItemsKeywords.get(weaponClass);
+      if (itemKeywords != null) {
+        for (String keyword : itemKeywords) {
+          addKeyword(keyword, bit);
+        }
+      }
+    }
+
+    if (WeaponClassDataInternal.ignoredItemsSuffix != null) {
+      for (String ignoreSuffix : WeaponClassDataInternal.ignoredItemsSuffix) {
+        addSuffix(ignoreSuffix, IGNORED_SUFFIX_BIT);
+      }
+    }
+
+    buildKeywordFailureLinks();
+  }
+
+  /**
+   * Returns the weapon class for the given item name and item or null, if no rule matches.
+   */
+  public WeaponClass classify(String itemName, Item item) {
+    if (WeaponClassDataInternal.ignoredItems.contains(itemName)) {
+      return null;
+    }
+
+    // Direct item names are always used, even for items with an ignored suffix.
+    int mask = nameMasks.getOrDefault(itemName, 0);
+
+    int suffixMask = matchSuffixes(itemName);
+    if ((suffixMask & IGNORED_SUFFIX_BIT) == 0) {
+      mask |= suffixMask | matchKeywords(itemName);
+      for (int index = 0; index < itemTypeClasses.length; index++) {
+        Class<?> itemTypeClass = itemTypeClasses[index];
+        if (itemTypeClass != null && itemTypeClass.isInstance(item)) {
+          mask |= 1 << index;
+        }
+      }
+    }
+
+    return mask == 0 ? null : weaponClasses[Integer.numberOfTrailingZeros(mask)];
+  }
+
+  private void addSuffix(String suffix, int bit) {
+    if (suffix.isEmpty()) {
+      return;
+    }
+    // Suffixes are stored reversed, so that the item name could be walked from the end.
+    Node node = suffixRoot;
+    for (int index = suffix.length() - 1; index >= 0; index--) {
+      node = node.children.computeIfAbsent(suffix.charAt(index), key -> new Node());
+    }
+    node.mask |= bit;
+  }
+
+  private int matchSuffixes(String itemName) {
+    int mask = 0;
+    Node node = suffixRoot;
+    for (int index = itemName.length() - 1; index >= 0 && node != null; index--) {
+      node = node.children.get(itemName.charAt(index));
+      if (node != null) {
+        mask |= node.mask;
+      }
+    }
+    return mask;
+  }
+
+  private void addKeyword(String keyword, int bit) {
+    if (keyword.isEmpty()) {
+      return;
+    }
+    Node node = keywordRoot;
+    for (int index = 0; index < keyword.length(); index++) {
+      node = node.children.computeIfAbsent(keyword.charAt(index), key -> new Node());
+    }
+    node.mask |= bit;
+  }
+
+  /**
+   * Builds the Aho-Corasick failure links and merges the masks of the failure targets, so that
+   * every keyword is found with a single walk over the item name.
+   */
+  private void buildKeywordFailureLinks() {
+    Queue<Node> queue = new ArrayDeque<>();
+    for (Node child : keywordRoot.children.values()) {
+      child.failure = keywordRoot;
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      Node node = queue.poll();
+      for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+        char character = entry.getKey();
+        Node child = entry.getValue();
+        Node failure = node.failure;
+        while (failure != keywordRoot && !failure.children.containsKey(character)) {
+          failure = failure.failure;
+        }
+        Node failureTarget = failure.children.get(character);
+        child.failure = failureTarget != null && failureTarget != child ? failureTarget : keywordRoot;
+        child.mask |= child.failure.mask;
+        queue.add(child);
+      }
+    }
+  }
+
+  private int matchKeywords(String itemName) {
+    int mask = 0;
+    Node node = keywordRoot;
+    for (int index = 0; index < itemName.length(); index++) {
+      char character = itemName.charAt(index);
+      Node next = node.children.get(character);
+      while (next == null && node != keywordRoot) {
+        node = node.failure;
+        next = node.children.get(character);
+      }
+      node = next != null ? next : keywordRoot;
+      mask |= node.mask;
+    }
+    return mask;
+  }
+
+  private static class Node {
+    private final Map<Character, Node> children = new HashMap<>();
+    private Node failure;
+    private int mask = 0;
+  }
+
+}
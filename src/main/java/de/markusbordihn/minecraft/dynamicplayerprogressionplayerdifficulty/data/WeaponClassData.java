@@ -19,15 +19,19 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -51,6 +55,8 @@ import net.minecraftforge.event.server.ServerAboutToStartEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.ForgeRegistry;
+import net.minecraftforge.server.ServerLifecycleHooks;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
@@ -65,6 +71,14 @@ public class WeaponClassData {
   // Weapon Class to Item mapping
   private static Map<String, WeaponClass> weaponClassMap = new HashMap<>();
 
+  // Frozen Item to Weapon Class lookup for the hot paths, rebuilt after each mapping.
+  private static volatile Map<Item, WeaponClass> weaponClassLookup = new IdentityHashMap<>();
+  private static volatile int weaponClassLookupVersion = 0;
+
+  // Registry ids per weapon class for the client sync, cached for the current lookup version.
+  private static int[][] weaponClassItemIds = null;
+  private static int weaponClassItemIdsVersion = -1;
+
   // Enabled weapon class
   private static EnumMap<WeaponClass, Boolean> weaponClassEnabled =
       new EnumMap<>(WeaponClass.class);
@@ -74,6 +88,24 @@ public class WeaponClassData {
       new EnumMap<>(WeaponClass.class);
   private static List<String> ignoredItems = Arrays.asList();
 
+  // Registry mapping order, the first matching weapon class wins.
+  private static final WeaponClass[] REGISTRY_MAPPING_ORDER = {
+  //@formatter:off
+    // Extended mapping like dagger, great sword, gun, ...
+    WeaponClass.CLAW, WeaponClass.CLAYMORE, WeaponClass.DAGGER, WeaponClass.FIST,
+    WeaponClass.GREAT_SWORD, WeaponClass.GUN, WeaponClass.HAMMER, WeaponClass.HAND_TO_HAND,
+    WeaponClass.KATANA, WeaponClass.KEYBLADE, WeaponClass.MACE, WeaponClass.PAXEL,
+    WeaponClass.POLEARM, WeaponClass.SCYTHE, WeaponClass.SPEAR, WeaponClass.STAFF,
+    WeaponClass.TACHI, WeaponClass.WAND,
+    // Classic mapping like axe, bow, crossbow, sword, ...
+    WeaponClass.AXE, WeaponClass.BOW, WeaponClass.CROSSBOW, WeaponClass.HOE, WeaponClass.PICKAXE,
+    WeaponClass.SHIELD, WeaponClass.SHOVEL, WeaponClass.SWORD
+  //@formatter:on
+  };
+  private static final EnumMap<WeaponClass, Class<?>> REGISTRY_MAPPING_ITEM_TYPES =
+      new EnumMap<>(WeaponClass.class);
+  private static WeaponClassClassifier weaponClassClassifier;
+
   // Other
   private static boolean init = false;
 
@@ -83,6 +115,15 @@ public class WeaponClassData {
       weaponClassEnabled.putIfAbsent(weaponClass, false);
       weaponClassItems.putIfAbsent(weaponClass, new HashSet<>());
     }
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.POLEARM, TridentItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.AXE, AxeItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.BOW, BowItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.CROSSBOW, CrossbowItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.HOE, HoeItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.PICKAXE, PickaxeItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.SHIELD, ShieldItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.SHOVEL, ShovelItem.class);
+    REGISTRY_MAPPING_ITEM_TYPES.put(WeaponClass.SWORD, SwordItem.class);
   }
 
   protected WeaponClassData() {}
@@ -100,7 +141,10 @@ public class WeaponClassData {
 
   @SubscribeEvent
   public static void handleWorldEventLoad(LevelEvent.Load event) {
-    if (event.getLevel().isClientSide() && !init) {
+    // The integrated server already shares its mapping with the client and remote servers are
+    // sending their mapping, so the local mapping is only a fallback for remote servers without it.
+    if (event.getLevel().isClientSide() && !init
+        && ServerLifecycleHooks.getCurrentServer() == null) {
       mappingWeaponClasses();
       init = true;
     }
@@ -120,81 +164,124 @@ public class WeaponClassData {
           ignoredItems);
     }
 
+    // Start with an empty mapping, which could still contain the mapping of a remote server.
     log.info("Set default values for weapon class ...");
-    for (WeaponClass weaponClass : WeaponClass.values()) {
-      weaponClassItems.putIfAbsent(weaponClass, new HashSet<>());
+    clearWeaponClasses();
+
+    // Use cached mapping, if registry, mapping rules and config lists are unchanged.
+    boolean useCache = Boolean.TRUE.equals(COMMON.weaponClassMappingCache.get());
+    byte[] fingerprint = useCache
+        ? WeaponClassDataCache.getFingerprint(REGISTRY_MAPPING_ORDER, REGISTRY_MAPPING_ITEM_TYPES,
+            ignoredItems)
+        : new byte[0];
+    if (useCache && processCachedItems(fingerprint)) {
+      buildWeaponClassLookup();
+      log.info("Weapon class mapping for {} weapons and {} classes loaded from cache in {}ms.",
+          weaponClassMap.size(), WeaponClass.values().length,
+          System.currentTimeMillis() - startTime);
+      return;
     }
 
     log.info("Using config entries for item mapping ...");
-    processConfigItems(COMMON.axeItems.get(), WeaponClass.AXE);
-    processConfigItems(COMMON.bowItems.get(), WeaponClass.BOW);
-    processConfigItems(COMMON.clawItems.get(), WeaponClass.CLAW);
-    processConfigItems(COMMON.claymoreItems.get(), WeaponClass.CLAYMORE);
-    processConfigItems(COMMON.crossbowItems.get(), WeaponClass.CROSSBOW);
-    processConfigItems(COMMON.daggerItems.get(), WeaponClass.DAGGER);
-    processConfigItems(COMMON.fistItems.get(), WeaponClass.FIST);
-    processConfigItems(COMMON.greatSwordItems.get(), WeaponClass.GREAT_SWORD);
-    processConfigItems(COMMON.gunItems.get(), WeaponClass.GUN);
-    processConfigItems(COMMON.hammerItems.get(), WeaponClass.HAMMER);
-    processConfigItems(COMMON.handToHandItems.get(), WeaponClass.HAND_TO_HAND);
-    processConfigItems(COMMON.hoeItems.get(), WeaponClass.HOE);
-    processConfigItems(COMMON.katanaItems.get(), WeaponClass.KATANA);
-    processConfigItems(COMMON.keybladeItems.get(), WeaponClass.KEYBLADE);
-    processConfigItems(COMMON.maceItems.get(), WeaponClass.MACE);
-    processConfigItems(COMMON.paxelItems.get(), WeaponClass.PAXEL);
-    processConfigItems(COMMON.pickaxeItems.get(), WeaponClass.PICKAXE);
-    processConfigItems(COMMON.polearmItems.get(), WeaponClass.POLEARM);
-    processConfigItems(COMMON.scytheItems.get(), WeaponClass.SCYTHE);
-    processConfigItems(COMMON.shieldItems.get(), WeaponClass.SHIELD);
-    processConfigItems(COMMON.shovelItems.get(), WeaponClass.SHOVEL);
-    processConfigItems(COMMON.spearItems.get(), WeaponClass.SPEAR);
-    processConfigItems(COMMON.staffItems.get(), WeaponClass.STAFF);
-    processConfigItems(COMMON.swordItems.get(), WeaponClass.SWORD);
-    processConfigItems(COMMON.tachiItems.get(), WeaponClass.TACHI);
-    processConfigItems(COMMON.wandItems.get(), WeaponClass.WAND);
-
-    log.info("Using registry for extended mapping like dagger, great sword, gun, ...");
-    processRegistryItems(WeaponClass.CLAW);
-    processRegistryItems(WeaponClass.CLAYMORE);
-    processRegistryItems(WeaponClass.DAGGER);
-    processRegistryItems(WeaponClass.FIST);
-    processRegistryItems(WeaponClass.GREAT_SWORD);
-    processRegistryItems(WeaponClass.GUN);
-    processRegistryItems(WeaponClass.HAMMER);
-    processRegistryItems(WeaponClass.HAND_TO_HAND);
-    processRegistryItems(WeaponClass.KATANA);
-    processRegistryItems(WeaponClass.KEYBLADE);
-    processRegistryItems(WeaponClass.MACE);
-    processRegistryItems(WeaponClass.PAXEL);
-    processRegistryItems(WeaponClass.POLEARM, TridentItem.class);
-    processRegistryItems(WeaponClass.SCYTHE);
-    processRegistryItems(WeaponClass.SPEAR);
-    processRegistryItems(WeaponClass.STAFF);
-    processRegistryItems(WeaponClass.TACHI);
-    processRegistryItems(WeaponClass.WAND);
-
-    log.info("Using registry for classic mapping like axe, bow, crossbow, sword, ...");
-    processRegistryItems(WeaponClass.AXE, AxeItem.class);
-    processRegistryItems(WeaponClass.BOW, BowItem.class);
-    processRegistryItems(WeaponClass.CROSSBOW, CrossbowItem.class);
-    processRegistryItems(WeaponClass.HOE, HoeItem.class);
-    processRegistryItems(WeaponClass.PICKAXE, PickaxeItem.class);
-    processRegistryItems(WeaponClass.SHIELD, ShieldItem.class);
-    processRegistryItems(WeaponClass.SHOVEL, ShovelItem.class);
-    processRegistryItems(WeaponClass.SWORD, SwordItem.class);
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      processConfigItems(getConfigItems(weaponClass), weaponClass);
+    }
+
+    log.info(
+        "Using registry for extended mapping like dagger, great sword, gun and classic mapping like axe, bow, crossbow, sword, ...");
+    processRegistryItems();
+
+    buildWeaponClassLookup();
+
+    if (useCache) {
+      WeaponClassDataCache.save(fingerprint, weaponClassItems);
+    }
 
     log.info("Weapon class mapping for about {} items to {} weapons and {} classes took {}ms.",
         ForgeRegistries.ITEMS.getEntries().size(), weaponClassMap.size(),
         WeaponClass.values().length, System.currentTimeMillis() - startTime);
   }
 
+  /** Registry ids of the mapped items, grouped by weapon class ordinal and sorted ascending. */
+  public static synchronized int[][] getWeaponClassItemIds() {
+    if (weaponClassItemIds != null && weaponClassItemIdsVersion == weaponClassLookupVersion) {
+      return weaponClassItemIds;
+    }
+    ForgeRegistry<Item> itemRegistry = (ForgeRegistry<Item>) ForgeRegistries.ITEMS;
+    int[][] itemIds = new int[WeaponClass.values().length][];
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      Set<Item> itemSet = weaponClassItems.get(weaponClass);
+      int[] ids = new int[itemSet.size()];
+      int index = 0;
+      for (Item item : itemSet) {
+        ids[index++] = itemRegistry.getID(item);
+      }
+      Arrays.sort(ids);
+      itemIds[weaponClass.ordinal()] = ids;
+    }
+    weaponClassItemIds = itemIds;
+    weaponClassItemIdsVersion = weaponClassLookupVersion;
+    return itemIds;
+  }
+
+  /**
+   * Replaces the local mapping with the mapping of the server, which is using the same registry ids
+   * after the registry sync.
+   */
+  public static void loadWeaponClassItemIds(int[][] itemIds) {
+    long startTime = System.currentTimeMillis();
+    ForgeRegistry<Item> itemRegistry = (ForgeRegistry<Item>) ForgeRegistries.ITEMS;
+    weaponClassMap = new HashMap<>();
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      Set<Item> itemSet = new HashSet<>();
+      int[] ids = weaponClass.ordinal() < itemIds.length ? itemIds[weaponClass.ordinal()] : null;
+      if (ids != null) {
+        for (int id : ids) {
+          Item item = itemRegistry.getValue(id);
+          if (item == null || item.equals(Items.AIR)) {
+            log.warn("[Weapon Class {}] Unknown item id {} from server!", weaponClass, id);
+            continue;
+          }
+          itemSet.add(item);
+          weaponClassMap.put(itemRegistry.getKey(item).toString(), weaponClass);
+        }
+      }
+      weaponClassItems.put(weaponClass, itemSet);
+      weaponClassEnabled.put(weaponClass, !itemSet.isEmpty());
+    }
+    buildWeaponClassLookup();
+    init = true;
+    log.info("Weapon class mapping for {} weapons and {} classes received from server in {}ms.",
+        weaponClassMap.size(), WeaponClass.values().length, System.currentTimeMillis() - startTime);
+  }
+
+  /** Drops the current mapping, e.g. the mapping of a remote server after the disconnect. */
+  public static void resetWeaponClasses() {
+    clearWeaponClasses();
+    buildWeaponClassLookup();
+    init = false;
+  }
+
+  private static void clearWeaponClasses() {
+    weaponClassMap = new HashMap<>();
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      weaponClassItems.put(weaponClass, new HashSet<>());
+      weaponClassEnabled.put(weaponClass, false);
+    }
+  }
+
   public static WeaponClass getWeaponClass(Item item) {
     if (item != null) {
-      return weaponClassMap.getOrDefault(ForgeRegistries.ITEMS.getKey(item).toString(), null);
+      return weaponClassLookup.get(item);
     }
     return null;
   }
 
+  /** Version of the weapon class mapping, which changes each time the mapping is rebuilt. */
+  public static int getWeaponClassLookupVersion() {
+    return weaponClassLookupVersion;
+  }
+
   public static boolean isWeaponClassEnabled(WeaponClass weaponClass) {
     return weaponClassEnabled.get(weaponClass);
   }
@@ -208,80 +295,210 @@ public class WeaponClassData {
         && !weaponClassItems.getOrDefault(weaponClass, new HashSet<>()).isEmpty();
   }
 
-  private static void processRegistryItems(WeaponClass weaponClass) {
-    processRegistryItems(weaponClass, null);
+  private static void buildWeaponClassLookup() {
+    // Items are singletons, so an identity map avoids the resource location string for lookups.
+    Map<Item, WeaponClass> lookup = new IdentityHashMap<>(weaponClassMap.size() * 2);
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      for (Item item : weaponClassItems.get(weaponClass)) {
+        lookup.put(item, weaponClass);
+      }
+    }
+    weaponClassLookup = lookup;
+    weaponClassLookupVersion++;
   }
 
-  private static void processRegistryItems(WeaponClass weaponClass, Class<?> itemTypeClass) {
-    Set<Item> itemSet = weaponClassItems.get(weaponClass);
-    Set<String> itemNames = WeaponClassDataInternal.weaponClassItemsNames.get(weaponClass);
-    Set<String> itemSuffixes = WeaponClassDataInternal.weaponClassItemsSuffixes.get(weaponClass);
-    Set<String> itemKeywords = WeaponClassDataInternal.weaponClassItemsKeywords.get(weaponClass);
-
-    Iterator<Entry<ResourceKey<Item>, Item>> itemsIterator =
-        ForgeRegistries.ITEMS.getEntries().iterator();
-    while (itemsIterator.hasNext()) {
-      Entry<ResourceKey<Item>, Item> itemEntry = itemsIterator.next();
-      ResourceKey<Item> resourceKey = itemEntry.getKey();
+  public static List<String> getConfigItems(WeaponClass weaponClass) {
+    switch (weaponClass) {
+      case AXE:
+        return COMMON.axeItems.get();
+      case BOW:
+        return COMMON.bowItems.get();
+      case CLAW:
+        return COMMON.clawItems.get();
+      case CLAYMORE:
+        return COMMON.claymoreItems.get();
+      case CROSSBOW:
+        return COMMON.crossbowItems.get();
+      case DAGGER:
+        return COMMON.daggerItems.get();
+      case FIST:
+        return COMMON.fistItems.get();
+      case GREAT_SWORD:
+        return COMMON.greatSwordItems.get();
+      case GUN:
+        return COMMON.gunItems.get();
+      case HAMMER:
+        return COMMON.hammerItems.get();
+      case HAND_TO_HAND:
+        return COMMON.handToHandItems.get();
+      case HOE:
+        return COMMON.hoeItems.get();
+      case KATANA:
+        return COMMON.katanaItems.get();
+      case KEYBLADE:
+        return COMMON.keybladeItems.get();
+      case MACE:
+        return COMMON.maceItems.get();
+      case PAXEL:
+        return COMMON.paxelItems.get();
+      case PICKAXE:
+        return COMMON.pickaxeItems.get();
+      case POLEARM:
+        return COMMON.polearmItems.get();
+      case SCYTHE:
+        return COMMON.scytheItems.get();
+      case SHIELD:
+        return COMMON.shieldItems.get();
+      case SHOVEL:
+        return COMMON.shovelItems.get();
+      case SPEAR:
+        return COMMON.spearItems.get();
+      case STAFF:
+        return COMMON.staffItems.get();
+      case SWORD:
+        return COMMON.swordItems.get();
+      case TACHI:
+        return COMMON.tachiItems.get();
+      case WAND:
+        return COMMON.wandItems.get();
+    }
+    return Arrays.asList();
+  }
+
+  private static WeaponClassClassifier getWeaponClassClassifier() {
+    if (weaponClassClassifier == null) {
+      weaponClassClassifier =
+          new WeaponClassClassifier(REGISTRY_MAPPING_ORDER, REGISTRY_MAPPING_ITEM_TYPES);
+    }
+    return weaponClassClassifier;
+  }
+
+  private static void processRegistryItems() {
+    boolean parallel = Boolean.TRUE.equals(COMMON.weaponClassParallelMapping.get());
+    long startTime = System.nanoTime();
+
+    // Snapshot the registry entries, so that they could be split into chunks.
+    List<Entry<ResourceKey<Item>, Item>> itemEntries =
+        new ArrayList<>(ForgeRegistries.ITEMS.getEntries());
+    String[] itemNames = new String[itemEntries.size()];
+    WeaponClass[] itemWeaponClasses = new WeaponClass[itemEntries.size()];
+    long snapshotTime = System.nanoTime();
+
+    // Classification is free of side effects and could be done in parallel.
+    WeaponClassClassifier classifier = getWeaponClassClassifier();
+    if (parallel) {
+      ForkJoinPool.commonPool().invoke(new ClassifyRegistryItemsTask(classifier, itemEntries,
+          itemNames, itemWeaponClasses, 0, itemEntries.size()));
+    } else {
+      classifyRegistryItems(classifier, itemEntries, itemNames, itemWeaponClasses, 0,
+          itemEntries.size());
+    }
+    long classifyTime = System.nanoTime();
+
+    // Merge results in registry order to get the same mapping and warnings as a sequential run.
+    for (int index = 0; index < itemWeaponClasses.length; index++) {
+      WeaponClass weaponClass = itemWeaponClasses[index];
+      if (weaponClass != null && !weaponClassMap.containsKey(itemNames[index])) {
+        addItemToWeaponClass(itemEntries.get(index).getValue(), itemNames[index],
+            weaponClassItems.get(weaponClass), weaponClass);
+      }
+    }
+    long mergeTime = System.nanoTime();
+
+    log.info(
+        "Registry classification ({}, {} threads) for {} items took snapshot {}ms, classify {}ms, merge {}ms.",
+        parallel ? "parallel" : "sequential",
+        parallel ? ForkJoinPool.commonPool().getParallelism() : 1, itemEntries.size(),
+        TimeUnit.NANOSECONDS.toMillis(snapshotTime - startTime),
+        TimeUnit.NANOSECONDS.toMillis(classifyTime - snapshotTime),
+        TimeUnit.NANOSECONDS.toMillis(mergeTime - classifyTime));
+  }
+
+  private static void classifyRegistryItems(WeaponClassClassifier classifier,
+      List<Entry<ResourceKey<Item>, Item>> itemEntries, String[] itemNames,
+      WeaponClass[] itemWeaponClasses, int fromIndex, int toIndex) {
+    for (int index = fromIndex; index < toIndex; index++) {
+      Entry<ResourceKey<Item>, Item> itemEntry = itemEntries.get(index);
       Item item = itemEntry.getValue();
-      String itemName = resourceKey.location().toString();
 
       // Ignore all items which are unknown or mapped to air.
-      if (item != null && !item.equals(Items.AIR)
-          && !WeaponClassDataInternal.ignoredItems.contains(itemName)
-          && !weaponClassMap.containsKey(itemName)) {
-
-        boolean isMapped = false;
-
-        // Map the item over the item name directly.
-        if (itemNames != null && !itemNames.isEmpty()) {
-          for (String match : itemNames) {
-            if (!match.isEmpty() && itemName.equals(match)) {
-              isMapped = addItemToWeaponClass(item, itemName, itemSet, weaponClass);
-              break;
-            }
-          }
-        }
+      if (item != null && !item.equals(Items.AIR)) {
+        String itemName = itemEntry.getKey().location().toString();
+        itemNames[index] = itemName;
+        itemWeaponClasses[index] = classifier.classify(itemName, item);
+      }
+    }
+  }
 
-        // Ignore Items which are matching the ignore suffix list like "_cast".
-        if (!isMapped && WeaponClassDataInternal.ignoredItemsSuffix != null
-            && !WeaponClassDataInternal.ignoredItemsSuffix.isEmpty()) {
-          for (String ignoreSuffix : WeaponClassDataInternal.ignoredItemsSuffix) {
-            if (!ignoreSuffix.isEmpty() && itemName.endsWith(ignoreSuffix)) {
-              isMapped = true;
-              break;
-            }
-          }
-        }
+  private static class ClassifyRegistryItemsTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final transient WeaponClassClassifier classifier;
+    private final transient List<Entry<ResourceKey<Item>, Item>> itemEntries;
+    private final String[] itemNames;
+    private final WeaponClass[] itemWeaponClasses;
+    private final int fromIndex;
+    private final int toIndex;
+
+    ClassifyRegistryItemsTask(WeaponClassClassifier classifier,
+        List<Entry<ResourceKey<Item>, Item>> itemEntries, String[] itemNames,
+        WeaponClass[] itemWeaponClasses, int fromIndex, int toIndex) {
+      this.classifier = classifier;
+      this.itemEntries = itemEntries;
+      this.itemNames = itemNames;
+      this.itemWeaponClasses = itemWeaponClasses;
+      this.fromIndex = fromIndex;
+      this.toIndex = toIndex;
+    }
 
-        // Map the item over the item type class.
-        if (!isMapped && itemTypeClass != null && itemTypeClass.isInstance(item)) {
-          isMapped = addItemToWeaponClass(item, itemName, itemSet, weaponClass);
-          continue;
-        }
+    @Override
+    protected void compute() {
+      if (toIndex - fromIndex <= CHUNK_SIZE) {
+        classifyRegistryItems(classifier, itemEntries, itemNames, itemWeaponClasses, fromIndex,
+            toIndex);
+        return;
+      }
+      int middleIndex = (fromIndex + toIndex) >>> 1;
+      invokeAll(
+          new ClassifyRegistryItemsTask(classifier, itemEntries, itemNames, itemWeaponClasses,
+              fromIndex, middleIndex),
+          new ClassifyRegistryItemsTask(classifier, itemEntries, itemNames, itemWeaponClasses,
+              middleIndex, toIndex));
+    }
+  }
 
-        // Map the item over a suffix.
-        if (!isMapped && itemSuffixes != null && !itemSuffixes.isEmpty()) {
-          for (String suffix : itemSuffixes) {
-            if (!suffix.isEmpty() && itemName.endsWith(suffix)) {
-              isMapped = addItemToWeaponClass(item, itemName, itemSet, weaponClass);
-              break;
-            }
-          }
-        }
+  private static boolean processCachedItems(byte[] fingerprint) {
+    Map<WeaponClass, List<String>> cachedItemNames = WeaponClassDataCache.load(fingerprint);
+    if (cachedItemNames == null) {
+      return false;
+    }
 
-        // Map the item over the keyword.
-        if (!isMapped && itemKeywords != null && !itemKeywords.isEmpty()) {
-          for (String keyword : itemKeywords) {
-            if (!keyword.isEmpty() && itemName.contains(keyword)) {
-              isMapped = addItemToWeaponClass(item, itemName, itemSet, weaponClass);
-              break;
-            }
-          }
+    // Resolve all items first, so that an unusable cache doesn't leave a partial mapping.
+    Map<WeaponClass, List<Item>> cachedItems = new EnumMap<>(WeaponClass.class);
+    for (Entry<WeaponClass, List<String>> cachedEntry : cachedItemNames.entrySet()) {
+      List<Item> items = new ArrayList<>(cachedEntry.getValue().size());
+      for (String itemName : cachedEntry.getValue()) {
+        Item item = ForgeRegistries.ITEMS.getValue(new ResourceLocation(itemName));
+        if (item == null || item.equals(Items.AIR)) {
+          log.info("Ignoring weapon class cache, unknown item {}.", itemName);
+          return false;
         }
+        items.add(item);
+      }
+      cachedItems.put(cachedEntry.getKey(), items);
+    }
 
+    for (Entry<WeaponClass, List<Item>> cachedEntry : cachedItems.entrySet()) {
+      WeaponClass weaponClass = cachedEntry.getKey();
+      Set<Item> itemSet = weaponClassItems.get(weaponClass);
+      for (Item item : cachedEntry.getValue()) {
+        addItemToWeaponClass(item, ForgeRegistries.ITEMS.getKey(item).toString(), itemSet,
+            weaponClass);
       }
     }
+    return true;
   }
 
   private static void processConfigItems(List<String> itemNames, WeaponClass weaponClass) {
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Map.Entry;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.item.Item;
+
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.registries.ForgeRegistries;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+
+/**
+ * Binary cache for the weapon class mapping, which is only valid for the exact same item registry,
+ * internal mapping rules and config lists.
+ */
+public class WeaponClassDataCache {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final int CACHE_MAGIC = 0x57434d43;
+  private static final int CACHE_VERSION = 1;
+  private static final String CACHE_FILE_NAME = Constants.MOD_ID + "_weapon_classes.cache";
+
+  protected WeaponClassDataCache() {}
+
+  public static Path getCacheFile() {
+    return FMLPaths.CONFIGDIR.get().resolve(CACHE_FILE_NAME);
+  }
+
+  /**
+   * Calculates a fingerprint over the item registry including the item types, the internal mapping
+   * rules and the config lists which are used for the mapping.
+   */
+  public static byte[] getFingerprint(WeaponClass[] mappingOrder,
+      Map<WeaponClass, Class<?>> mappingItemTypes, List<String> ignoredItems) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      log.error("Unable to calculate weapon class cache fingerprint: {}", exception.getMessage());
+      return new byte[0];
+    }
+    update(digest, "version:" + CACHE_VERSION);
+
+    // Item registry with item names and item types.
+    for (Entry<ResourceKey<Item>, Item> itemEntry : ForgeRegistries.ITEMS.getEntries()) {
+      update(digest, itemEntry.getKey().location().toString());
+      update(digest, itemEntry.getValue().getClass().getName());
+    }
+
+    // Internal rules and mapping order.
+    update(digest, "ignored", WeaponClassDataInternal.ignoredItems);
+    update(digest, "ignoredSuffix", WeaponClassDataInternal.ignoredItemsSuffix);
+    for (WeaponClass weaponClass : mappingOrder) {
+      Class<?> itemType = mappingItemTypes.get(weaponClass);
+      update(digest, "order:" + weaponClass.name() + ":"
+          + (itemType != null ? itemType.getName() : ""));
+    }
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      update(digest, "names:" + weaponClass.name(),
+          WeaponClassDataInternal.weaponClassItemsNames.get(weaponClass));
+      update(digest, "suffixes:" + weaponClass.name(),
+          WeaponClassDataInternal.weaponClassItemsSuffixes.get(weaponClass));
+      update(digest, "keywords:" + weaponClass.name(),
+          WeaponClassDataInternal.weaponClassItemsKeywords.get(weaponClass));
+    }
+
+    // Config lists, which are used in their defined order.
+    update(digest, "config:ignored", ignoredItems);
+    for (WeaponClass weaponClass : WeaponClass.values()) {
+      update(digest, "config:" + weaponClass.name(), WeaponClassData.getConfigItems(weaponClass));
+    }
+
+    return digest.digest();
+  }
+
+  /**
+   * Returns the cached item names per weapon class or null, if there is no valid cache for the
+   * given fingerprint.
+   */
+  public static Map<WeaponClass, List<String>> load(byte[] fingerprint) {
+    Path cacheFile = getCacheFile();
+    if (fingerprint.length == 0 || !Files.isRegularFile(cacheFile)) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(new GZIPInputStream(Files.newInputStream(cacheFile))))) {
+      if (input.readInt() != CACHE_MAGIC || input.readInt() != CACHE_VERSION) {
+        log.info("Ignoring weapon class cache {} with unknown format.", cacheFile);
+        return null;
+      }
+      byte[] cachedFingerprint = new byte[input.readUnsignedByte()];
+      input.readFully(cachedFingerprint);
+      if (!Arrays.equals(fingerprint, cachedFingerprint)) {
+        log.info("Weapon class cache {} is outdated, registry or config has changed.", cacheFile);
+        return null;
+      }
+      Map<WeaponClass, List<String>> weaponClassItemNames = new EnumMap<>(WeaponClass.class);
+      int numberOfWeaponClasses = input.readInt();
+      for (int i = 0; i < numberOfWeaponClasses; i++) {
+        WeaponClass weaponClass = WeaponClass.valueOf(input.readUTF());
+        int numberOfItems = input.readInt();
+        List<String> itemNames = new ArrayList<>(numberOfItems);
+        for (int j = 0; j < numberOfItems; j++) {
+          itemNames.add(input.readUTF());
+        }
+        weaponClassItemNames.put(weaponClass, itemNames);
+      }
+      return weaponClassItemNames;
+    } catch (IOException | IllegalArgumentException exception) {
+      log.warn("Unable to read weapon class cache {}: {}", cacheFile, exception.getMessage());
+    }
+    return null;
+  }
+
+  public static void save(byte[] fingerprint, Map<WeaponClass, Set<Item>> weaponClassItems) {
+    Path cacheFile = getCacheFile();
+    if (fingerprint.length == 0) {
+      return;
+    }
+    Path temporaryFile = cacheFile.resolveSibling(CACHE_FILE_NAME + ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+          new GZIPOutputStream(Files.newOutputStream(temporaryFile))))) {
+        output.writeInt(CACHE_MAGIC);
+        output.writeInt(CACHE_VERSION);
+        output.writeByte(fingerprint.length);
+        output.write(fingerprint);
+        output.writeInt(weaponClassItems.size());
+        for (Entry<WeaponClass, Set<Item>> weaponClassEntry : weaponClassItems.entrySet()) {
+          output.writeUTF(weaponClassEntry.getKey().name());
+          output.writeInt(weaponClassEntry.getValue().size());
+          for (Item item : weaponClassEntry.getValue()) {
+            output.writeUTF(ForgeRegistries.ITEMS.getKey(item).toString());
+          }
+        }
+      }
+      Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      log.debug("Stored weapon class cache in {}", cacheFile);
+    } catch (IOException exception) {
+      log.warn("Unable to write weapon class cache {}: {}", cacheFile, exception.getMessage());
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static void update(MessageDigest digest, String name, Collection<String> values) {
+    update(digest, name);
+    if (values != null) {
+      // Sets have no stable order, so sort them before hashing.
+      Collection<String> orderedValues = values instanceof List ? values : new TreeSet<>(values);
+      update(digest, String.valueOf(orderedValues.size()));
+      for (String value : orderedValues) {
+        update(digest, value);
+      }
+    }
+  }
+
+}
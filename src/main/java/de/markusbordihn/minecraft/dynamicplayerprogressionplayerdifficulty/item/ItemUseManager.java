@@ -0,0 +1,76 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item;
+
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+
+import net.minecraftforge.event.entity.living.LivingEntityUseItemEvent;
+import net.minecraftforge.event.entity.living.ShieldBlockEvent;
+import net.minecraftforge.event.entity.player.PlayerInteractEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClassData;
+
+/**
+ * Marks the item usage of actions without any hit, kill or block break, like shield blocks, bow and
+ * crossbow shots, thrown tridents, off-hand usage or tools which are used on blocks.
+ */
+@EventBusSubscriber
+public class ItemUseManager {
+
+  protected ItemUseManager() {}
+
+  @SubscribeEvent
+  public static void handleLivingEntityUseItemStopEvent(LivingEntityUseItemEvent.Stop event) {
+    markUsedItem(event.getEntity(), event.getItem());
+  }
+
+  @SubscribeEvent
+  public static void handleLivingEntityUseItemFinishEvent(LivingEntityUseItemEvent.Finish event) {
+    markUsedItem(event.getEntity(), event.getItem());
+  }
+
+  @SubscribeEvent
+  public static void handleShieldBlockEvent(ShieldBlockEvent event) {
+    markUsedItem(event.getEntity(), event.getEntity().getUseItem());
+  }
+
+  @SubscribeEvent
+  public static void handleRightClickItemEvent(PlayerInteractEvent.RightClickItem event) {
+    markUsedItem(event.getEntity(), event.getItemStack());
+  }
+
+  @SubscribeEvent
+  public static void handleRightClickBlockEvent(PlayerInteractEvent.RightClickBlock event) {
+    markUsedItem(event.getEntity(), event.getItemStack());
+  }
+
+  private static void markUsedItem(Entity entity, ItemStack itemStack) {
+    if (entity instanceof ServerPlayer serverPlayer && itemStack != null && !itemStack.isEmpty()
+        && WeaponClassData.getWeaponClass(itemStack.getItem()) != null) {
+      PlayerDataManager.scheduleItemUsage(serverPlayer, itemStack.getItem());
+    }
+  }
+
+}
@@ -19,123 +19,214 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.TickTask;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.world.InteractionHand;
-import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.stats.Stats;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 
-import net.minecraftforge.event.entity.living.LivingDamageEvent;
-import net.minecraftforge.eventbus.api.EventPriority;
-import net.minecraftforge.eventbus.api.SubscribeEvent;
-import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
-
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
-import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataManager;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClass;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClassData;
 
-@EventBusSubscriber
 public class WeaponAdjustmentManager {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
-  private static Map<ItemStack, Integer> damageHistory = new HashMap<>();
-  private static Map<ItemStack, Float> damageStackCache = new HashMap<>();
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
+  private static final int DURABILITY_STATE_MAX_SIZE = 10000;
+  private static final int DURABILITY_STATE_EXPIRE_MINUTES = 30;
+
+  // Durability state per item stack, weak keys are compared by identity like the item stacks.
+  private static Cache<ItemStack, DurabilityState> durabilityStates =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(DURABILITY_STATE_MAX_SIZE)
+          .expireAfterAccess(DURABILITY_STATE_EXPIRE_MINUTES, TimeUnit.MINUTES).recordStats()
+          .build();
+
+  // Item damage before the pending wear, only accessed from the server thread.
+  private static Map<ItemStack, Integer> pendingItemDamage = new IdentityHashMap<>();
 
   protected WeaponAdjustmentManager() {}
 
-  @SubscribeEvent(priority = EventPriority.LOWEST)
-  public static void handleLivingDamageEvent(LivingDamageEvent event) {
-    DamageSource damageSource = event.getSource();
-
-    // We only care about damage caused by server players for now.
-    if (damageSource.getEntity() instanceof ServerPlayer serverPlayer) {
-      PlayerData playerData = PlayerDataManager.getPlayer(serverPlayer);
-      if (playerData != null) {
-        float lastAttackDamage = event.getAmount();
-        float attackDamage = lastAttackDamage;
-        ItemStack handItemStack = serverPlayer.getItemInHand(InteractionHand.MAIN_HAND);
-        if (!handItemStack.isEmpty() && handItemStack.getItem() != null) {
-          Item handItem = handItemStack.getItem();
-
-          // Modification per weapon class
-          WeaponClass weaponClass = WeaponClassData.getWeaponClass(handItem);
-          if (weaponClass != null) {
-
-            // Simple damage adjustments, if any.
-            float damageAdjustment = playerData.getWeaponClassDamageAdjustment(weaponClass);
-            if (damageAdjustment > 0.0f) {
-              attackDamage = attackDamage * damageAdjustment;
-              log.debug("[Item Damage {}] {} from {} by {} to {}", weaponClass, serverPlayer,
-                  lastAttackDamage, damageAdjustment, attackDamage);
-            }
-
-            // More complex durability adjustments, if any.
-            float durabilityAdjustment =
-                playerData.getWeaponClassDurabilityAdjustment(weaponClass) - 1;
-            if (durabilityAdjustment > 0.0f) {
-              int itemDamage = handItem.getDamage(handItemStack);
-              int maxItemDamage = handItem.getMaxDamage(handItemStack);
-              int itemDamageHistory = damageHistory.getOrDefault(handItemStack, itemDamage);
-
-              // In some cases we don't want to adjust the item damage to make sure the item could
-              // still get broken and will not live forever.
-              if (itemDamage > 0 && itemDamageHistory < itemDamage
-                  && itemDamage + 10 < maxItemDamage) {
-                float damageReduction = (itemDamage - itemDamageHistory) * durabilityAdjustment;
-                int adjustedItemDamage = Math.round(itemDamage - damageReduction);
-
-                // Store small adjustments in damage stack so that they get could be used later.
-                if (damageReduction < 1.0f) {
-                  damageStackCache.put(handItemStack,
-                      damageStackCache.getOrDefault(handItemStack, 0.0f) + damageReduction);
-                }
-
-                // Check for damage stack values and use them if we have more than 1.0f.
-                float itemDamageReductionStack = damageStackCache.getOrDefault(handItemStack, 0.0f);
-                if (itemDamageReductionStack >= 1.0f) {
-                  adjustedItemDamage = itemDamage - Math.round(itemDamageReductionStack);
-                  log.debug(
-                      "[Item Durability {}] {} {} from {}/{} by {} stacked damage reduction and factor {} to {}",
-                      weaponClass, serverPlayer, handItem, itemDamage, maxItemDamage,
-                      itemDamageReductionStack, durabilityAdjustment, adjustedItemDamage);
-                  damageStackCache.put(handItemStack, 0.0f);
-                  handItem.setDamage(handItemStack, Math.max(0, adjustedItemDamage));
-                } else if (itemDamageReductionStack > 0.0f && damageReduction > 0.0f) {
-                  log.debug("[Item Durability Stack {}] {} {} stack {} durability to total of {}",
-                      weaponClass, serverPlayer, handItem, damageReduction,
-                      itemDamageReductionStack);
-                } else if (adjustedItemDamage > 0 && adjustedItemDamage != itemDamage) {
-                  log.debug("[Item Durability {}] {} {} from {}/{} by factor {} to {}", weaponClass,
-                      serverPlayer, handItem, itemDamage, maxItemDamage, durabilityAdjustment,
-                      adjustedItemDamage);
-                  handItem.setDamage(handItemStack, Math.max(0, adjustedItemDamage));
-                }
-              }
-              damageHistory.put(handItemStack, handItem.getDamage(handItemStack));
-            }
-
-          } else {
-            log.debug("[Unknown Weapon Class] {} is unknown.", handItem);
-          }
-
-          // Update last attack damage for clear attack damage chain calculation.
-          lastAttackDamage = attackDamage;
-        }
-
-        // Adjust attack damage, if there is any different
-        if (event.getAmount() != attackDamage) {
-          event.setAmount(attackDamage);
-        }
+  /**
+   * Weapon class stage of the combat pipeline, which adjusts the attack damage and the durability
+   * of the item in the main hand and returns the adjusted attack damage.
+   */
+  public static float adjustAttackDamage(ServerPlayer serverPlayer, PlayerData playerData,
+      ItemStack handItemStack, float attackDamage) {
+    if (handItemStack.isEmpty() || handItemStack.getItem() == null) {
+      return attackDamage;
+    }
+    Item handItem = handItemStack.getItem();
+
+    // Modification per weapon class
+    WeaponClass weaponClass = WeaponClassData.getWeaponClass(handItem);
+    if (weaponClass == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("[Unknown Weapon Class] {} is unknown.", handItem);
+      }
+      return attackDamage;
+    }
+
+    // Remember used item and damage, so that they are refreshed with the next update.
+    playerData.addUsedItem(handItem);
+    playerData.markStatChanged(Stats.CUSTOM.get(Stats.DAMAGE_DEALT));
+
+    // Simple damage adjustments, if any.
+    float adjustedAttackDamage = attackDamage;
+    float damageAdjustment = playerData.getWeaponClassDamageAdjustment(weaponClass);
+    if (damageAdjustment > 0.0f) {
+      adjustedAttackDamage = attackDamage * damageAdjustment;
+      if (log.isDebugEnabled()) {
+        log.debug("[Item Damage {}] {} from {} by {} to {}", weaponClass, serverPlayer,
+            attackDamage, damageAdjustment, adjustedAttackDamage);
+      }
+    }
+
+    // Durability adjustments, if any.
+    adjustItemDurability(serverPlayer, playerData, handItemStack, weaponClass);
+
+    return adjustedAttackDamage;
+  }
+
+  public static void adjustItemDurability(ServerPlayer serverPlayer, PlayerData playerData,
+      ItemStack handItemStack, WeaponClass weaponClass) {
+    float durabilityAdjustment = playerData.getWeaponClassDurabilityAdjustment(weaponClass) - 1;
+    if (durabilityAdjustment <= 0.0f) {
+      return;
+    }
+    if (COMMON.weaponClassDurabilityMode.get() == DurabilityMode.PROBABILISTIC) {
+      adjustItemDurabilityProbabilistic(serverPlayer, handItemStack, weaponClass,
+          durabilityAdjustment);
+    } else {
+      adjustItemDurabilityHistory(serverPlayer, handItemStack, weaponClass, durabilityAdjustment);
+    }
+  }
+
+  /**
+   * Remembers the item damage before the attack or block break and checks with the next server
+   * task how much wear was actually applied. Each applied point is refunded with a probability of
+   * the durability adjustment, like the Unbreaking enchantment. Items without vanilla wear,
+   * cancelled block breaks and wear already saved by Unbreaking are therefore never refunded, and
+   * several events for the same item stack, like sweep attacks, share a single refund.
+   */
+  private static void adjustItemDurabilityProbabilistic(ServerPlayer serverPlayer,
+      ItemStack handItemStack, WeaponClass weaponClass, float durabilityAdjustment) {
+    MinecraftServer minecraftServer = serverPlayer.getServer();
+    if (minecraftServer == null || !handItemStack.isDamageableItem()
+        || pendingItemDamage.containsKey(handItemStack)) {
+      return;
+    }
+    pendingItemDamage.put(handItemStack, handItemStack.getItem().getDamage(handItemStack));
+    minecraftServer.tell(new TickTask(minecraftServer.getTickCount(),
+        () -> refundItemWear(serverPlayer, handItemStack, weaponClass, durabilityAdjustment)));
+  }
+
+  private static void refundItemWear(ServerPlayer serverPlayer, ItemStack handItemStack,
+      WeaponClass weaponClass, float durabilityAdjustment) {
+    Integer formerItemDamage = pendingItemDamage.remove(handItemStack);
+    if (formerItemDamage == null || handItemStack.isEmpty()) {
+      return;
+    }
+    Item handItem = handItemStack.getItem();
+    int itemDamage = handItem.getDamage(handItemStack);
+    int maxItemDamage = handItem.getMaxDamage(handItemStack);
+    int appliedWear = itemDamage - formerItemDamage;
+    if (appliedWear <= 0) {
+      return;
+    }
+
+    float chance = Math.min(durabilityAdjustment, 1.0f);
+    int savedWear = 0;
+    for (int wear = 0; wear < appliedWear; wear++) {
+      if (serverPlayer.getRandom().nextFloat() < chance) {
+        savedWear++;
+      }
+    }
+
+    // In some cases we don't want to adjust the item damage to make sure the item could still get
+    // broken and will not live forever.
+    if (savedWear > 0 && itemDamage + 10 < maxItemDamage) {
+      log.debug("[Item Durability {}] {} {} refunded {} of {} wear at {}/{} with chance {}",
+          weaponClass, serverPlayer, handItem, savedWear, appliedWear, itemDamage, maxItemDamage,
+          durabilityAdjustment);
+      handItem.setDamage(handItemStack, Math.max(0, itemDamage - savedWear));
+    }
+  }
+
+  private static void adjustItemDurabilityHistory(ServerPlayer serverPlayer,
+      ItemStack handItemStack, WeaponClass weaponClass, float durabilityAdjustment) {
+    Item handItem = handItemStack.getItem();
+    int itemDamage = handItem.getDamage(handItemStack);
+    int maxItemDamage = handItem.getMaxDamage(handItemStack);
+    DurabilityState durabilityState = durabilityStates.asMap()
+        .computeIfAbsent(handItemStack, key -> new DurabilityState(itemDamage));
+    int itemDamageHistory = durabilityState.damageHistory;
+
+    // In some cases we don't want to adjust the item damage to make sure the item could
+    // still get broken and will not live forever.
+    if (itemDamage > 0 && itemDamageHistory < itemDamage
+        && itemDamage + 10 < maxItemDamage) {
+      float damageReduction = (itemDamage - itemDamageHistory) * durabilityAdjustment;
+      int adjustedItemDamage = Math.round(itemDamage - damageReduction);
+
+      // Store small adjustments in damage stack so that they get could be used later.
+      if (damageReduction < 1.0f) {
+        durabilityState.damageReductionStack += damageReduction;
       }
+
+      // Check for damage stack values and use them if we have more than 1.0f.
+      float itemDamageReductionStack = durabilityState.damageReductionStack;
+      if (itemDamageReductionStack >= 1.0f) {
+        adjustedItemDamage = itemDamage - Math.round(itemDamageReductionStack);
+        log.debug(
+            "[Item Durability {}] {} {} from {}/{} by {} stacked damage reduction and factor {} to {}",
+            weaponClass, serverPlayer, handItem, itemDamage, maxItemDamage,
+            itemDamageReductionStack, durabilityAdjustment, adjustedItemDamage);
+        durabilityState.damageReductionStack = 0.0f;
+        handItem.setDamage(handItemStack, Math.max(0, adjustedItemDamage));
+      } else if (itemDamageReductionStack > 0.0f && damageReduction > 0.0f) {
+        log.debug("[Item Durability Stack {}] {} {} stack {} durability to total of {}",
+            weaponClass, serverPlayer, handItem, damageReduction,
+            itemDamageReductionStack);
+      } else if (adjustedItemDamage > 0 && adjustedItemDamage != itemDamage) {
+        log.debug("[Item Durability {}] {} {} from {}/{} by factor {} to {}", weaponClass,
+            serverPlayer, handItem, itemDamage, maxItemDamage, durabilityAdjustment,
+            adjustedItemDamage);
+        handItem.setDamage(handItemStack, Math.max(0, adjustedItemDamage));
+      }
+    }
+    durabilityState.damageHistory = handItem.getDamage(handItemStack);
+  }
+
+  public static long getNumberOfDurabilityStates() {
+    return durabilityStates.size();
+  }
+
+  public static long getNumberOfEvictedDurabilityStates() {
+    return durabilityStates.stats().evictionCount();
+  }
+
+  private static class DurabilityState {
+    private int damageHistory;
+    private float damageReductionStack = 0.0f;
+
+    private DurabilityState(int damageHistory) {
+      this.damageHistory = damageHistory;
     }
   }
 
@@ -19,6 +19,8 @@
 
 package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network;
 
+import java.util.Iterator;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -27,9 +29,11 @@ import org.apache.logging.log4j.Logger;
 
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent.PlayerChangedDimensionEvent;
 import net.minecraftforge.eventbus.api.EventPriority;
@@ -39,34 +43,65 @@ import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
+import net.minecraftforge.server.ServerLifecycleHooks;
 
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataDelta;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerServerDataClientSync;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClassData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.message.MessageExperienceSettings;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.message.MessagePlayerData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.message.MessagePlayerDataDelta;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.message.MessageWeaponClassMapping;
 
 @EventBusSubscriber
 public class NetworkHandler {
 
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
-  private static final String PROTOCOL_VERSION = "1";
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
+  private static final String PROTOCOL_VERSION = "5";
   public static final SimpleChannel INSTANCE =
       NetworkRegistry.newSimpleChannel(new ResourceLocation(Constants.MOD_ID, "network"),
           () -> PROTOCOL_VERSION, PROTOCOL_VERSION::equals, PROTOCOL_VERSION::equals);
 
   private static ConcurrentHashMap<UUID, ServerPlayer> serverPlayerMap = new ConcurrentHashMap<>();
+  private static ConcurrentHashMap<UUID, CompoundTag> lastPlayerDataMap = new ConcurrentHashMap<>();
   private static int id = 0;
-  private static CompoundTag lastPlayerDataPackage;
+
+  // Outbound queue with the latest pending player data per player.
+  private static ConcurrentHashMap<UUID, CompoundTag> pendingPlayerDataMap =
+      new ConcurrentHashMap<>();
+  private static int flushTicker = 0;
+  private static long playerDataQueued = 0;
+  private static long playerDataSent = 0;
 
   protected NetworkHandler() {}
 
   @SubscribeEvent(priority = EventPriority.HIGHEST)
   public static void handlePlayerChangedDimensionEvent(PlayerChangedDimensionEvent event) {
     addServerPlayer(event.getEntity());
+
+    // Full resync after dimension change.
+    if (event.getEntity() instanceof ServerPlayer serverPlayer) {
+      PlayerServerDataClientSync.syncPlayerData(PlayerDataManager.getPlayer(serverPlayer), true);
+    }
   }
 
   @SubscribeEvent(priority = EventPriority.HIGHEST)
   public static void handlePlayerLoggedInEvent(PlayerEvent.PlayerLoggedInEvent event) {
     addServerPlayer(event.getEntity());
+
+    // Experience settings and weapon class mapping are needed before the first player data.
+    if (event.getEntity() instanceof ServerPlayer serverPlayer) {
+      INSTANCE.send(PacketDistributor.PLAYER.with(() -> serverPlayer),
+          MessageExperienceSettings.fromExperience());
+      INSTANCE.send(PacketDistributor.PLAYER.with(() -> serverPlayer),
+          new MessageWeaponClassMapping(WeaponClassData.getWeaponClassItemIds()));
+    }
   }
 
   @SubscribeEvent(priority = EventPriority.HIGHEST)
@@ -74,6 +109,26 @@ public class NetworkHandler {
     removeServerPlayer(event.getEntity());
   }
 
+  @SubscribeEvent
+  public static void handleServerTickEvent(TickEvent.ServerTickEvent event) {
+    if (event.phase != TickEvent.Phase.END || ++flushTicker < COMMON.syncMaxLatency.get()) {
+      return;
+    }
+    flushTicker = 0;
+    if (pendingPlayerDataMap.isEmpty()) {
+      return;
+    }
+
+    // Send only the latest pending player data for each player.
+    Iterator<Map.Entry<UUID, CompoundTag>> pendingIterator =
+        pendingPlayerDataMap.entrySet().iterator();
+    while (pendingIterator.hasNext()) {
+      Map.Entry<UUID, CompoundTag> pendingEntry = pendingIterator.next();
+      pendingIterator.remove();
+      sendPlayerData(pendingEntry.getKey(), pendingEntry.getValue());
+    }
+  }
+
   public static void registerNetworkHandler(final FMLCommonSetupEvent event) {
 
     log.info("{} Network Handler for {} with version {} ...", Constants.LOG_REGISTER_PREFIX,
@@ -81,29 +136,104 @@ public class NetworkHandler {
 
     event.enqueueWork(() -> {
       // Sync single Player Data: Server -> Client
-      INSTANCE.registerMessage(id++, MessagePlayerData.class, (message, buffer) -> {
-        buffer.writeUtf(message.getPlayerUUID());
-        buffer.writeNbt(message.getData());
-      }, buffer -> new MessagePlayerData(buffer.readUtf(), buffer.readNbt()),
+      INSTANCE.registerMessage(id++, MessagePlayerData.class,
+          (message, buffer) -> PlayerDataCodec.encode(message.getData(), buffer),
+          buffer -> new MessagePlayerData(PlayerDataCodec.decode(buffer)),
           MessagePlayerData::handle);
+
+      // Sync changed Player Data: Server -> Client
+      INSTANCE.registerMessage(id++, MessagePlayerDataDelta.class,
+          (message, buffer) -> PlayerDataCodec.encode(message.getData(), buffer),
+          buffer -> new MessagePlayerDataDelta(PlayerDataCodec.decode(buffer)),
+          MessagePlayerDataDelta::handle);
+
+      // Sync Experience Settings: Server -> Client
+      INSTANCE.registerMessage(id++, MessageExperienceSettings.class,
+          MessageExperienceSettings::encode, MessageExperienceSettings::decode,
+          MessageExperienceSettings::handle);
+
+      // Sync Weapon Class Mapping: Server -> Client
+      INSTANCE.registerMessage(id++, MessageWeaponClassMapping.class,
+          MessageWeaponClassMapping::encode, MessageWeaponClassMapping::decode,
+          MessageWeaponClassMapping::handle);
     });
   }
 
-  /** Send specific player companion data to the owner, if data has changed. */
+  /**
+   * Queues specific player data for the owner, which is sent at the end of the server tick within
+   * the configured max. latency. Only the latest data per player is kept.
+   */
   public static void updatePlayerData(UUID playerUUID, CompoundTag data) {
-    if (playerUUID != null && data != null && !data.isEmpty()
-        && !data.equals(lastPlayerDataPackage)) {
-      ServerPlayer serverPlayer = getServerPlayer(playerUUID);
-      if (serverPlayer == null) {
+    if (playerUUID == null || data == null || data.isEmpty()) {
+      return;
+    }
+    if (COMMON.syncMaxLatency.get() <= 0) {
+      sendPlayerData(playerUUID, data);
+      return;
+    }
+    playerDataQueued++;
+    pendingPlayerDataMap.put(playerUUID, data);
+  }
+
+  /**
+   * Send specific player data to the owner, if data has changed. The first sync after login or
+   * dimension change sends the full data, all other syncs only send the changed values.
+   */
+  private static void sendPlayerData(UUID playerUUID, CompoundTag data) {
+    ServerPlayer serverPlayer = getServerPlayer(playerUUID);
+    if (serverPlayer == null) {
+      return;
+    }
+    CompoundTag lastPlayerData = lastPlayerDataMap.get(playerUUID);
+    if (lastPlayerData == null) {
+      log.debug("Sending full Player data to {}: {}", serverPlayer, data);
+      INSTANCE.send(PacketDistributor.PLAYER.with(() -> serverPlayer),
+          new MessagePlayerData(data));
+    } else {
+      CompoundTag deltaData = PlayerDataDelta.create(lastPlayerData, data);
+      if (deltaData.isEmpty()) {
         return;
       }
-      log.debug("Sending Player data to {}: {}", serverPlayer, data);
+      log.debug("Sending Player data delta to {}: {}", serverPlayer, deltaData);
       INSTANCE.send(PacketDistributor.PLAYER.with(() -> serverPlayer),
-          new MessagePlayerData(playerUUID.toString(), data));
-      lastPlayerDataPackage = data;
+          new MessagePlayerDataDelta(deltaData));
+    }
+    lastPlayerDataMap.put(playerUUID, data);
+    playerDataSent++;
+  }
+
+  /** Sends the current experience settings to all players, e.g. after a config change. */
+  public static void syncExperienceSettings() {
+    if (serverPlayerMap.isEmpty()) {
+      return;
+    }
+    MinecraftServer minecraftServer = ServerLifecycleHooks.getCurrentServer();
+    if (minecraftServer == null) {
+      return;
+    }
+    minecraftServer.execute(NetworkHandler::sendExperienceSettings);
+  }
+
+  /** Sends the current experience settings to all players, which needs the server thread. */
+  public static void sendExperienceSettings() {
+    MessageExperienceSettings message = MessageExperienceSettings.fromExperience();
+    for (ServerPlayer serverPlayer : serverPlayerMap.values()) {
+      INSTANCE.send(PacketDistributor.PLAYER.with(() -> serverPlayer), message);
     }
   }
 
+  public static long getPlayerDataQueued() {
+    return playerDataQueued;
+  }
+
+  public static long getPlayerDataSent() {
+    return playerDataSent;
+  }
+
+  public static int getPlayerDataPending() {
+    return pendingPlayerDataMap.size();
+  }
+
   private static void addServerPlayer(Player player) {
     if (player instanceof ServerPlayer serverPlayer) {
       addServerPlayer(serverPlayer.getUUID(), serverPlayer);
@@ -112,6 +242,9 @@ public class NetworkHandler {
 
   private static void addServerPlayer(UUID uuid, ServerPlayer serverPlayer) {
     serverPlayerMap.put(uuid, serverPlayer);
+
+    // Make sure the next sync is a full resync.
+    lastPlayerDataMap.remove(uuid);
   }
 
   private static void removeServerPlayer(Player player) {
@@ -122,6 +255,8 @@ public class NetworkHandler {
 
   private static void removeServerPlayer(UUID uuid) {
     serverPlayerMap.remove(uuid);
+    lastPlayerDataMap.remove(uuid);
+    pendingPlayerDataMap.remove(uuid);
   }
 
   private static ServerPlayer getServerPlayer(UUID uuid) {
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.network.FriendlyByteBuf;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClass;
+
+/**
+ * Binary codec for full and delta player data tags, which writes a field presence bit mask and the
+ * values in a fixed order instead of the tag names. The player UUID is not included, because the
+ * receiver is always the player itself.
+ *
+ * Format: codec version (byte), field mask (varint), fields in order of {@link #FIELDS}, weapon
+ * class mask (varint) and for each weapon class in ordinal order experience, base experience and
+ * level (varint) as well as damage and durability adjustment (float). Int arrays like the weapon
+ * class usage are written as weapon class mask of the non-zero entries and their values (varint).
+ */
+public class PlayerDataCodec {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  public static final int CODEC_VERSION = 2;
+
+  private static final WeaponClass[] WEAPON_CLASSES = WeaponClass.values();
+
+  private enum FieldType {
+    BOOLEAN, FLOAT, INT_ARRAY, STRING, VARINT
+  }
+
+  private static final String[] FIELDS = {PlayerData.PVP_ENABLED_TAG,
+      PlayerData.EXPERIENCE_PENALTY_GENERAL_TAG, PlayerData.EXPERIENCE_PENALTY_WEAPON_CLASS_TAG,
+      PlayerData.DAMAGE_EXPERIENCE_MOB_TAG, PlayerData.DAMAGE_EXPERIENCE_PLAYER_TAG,
+      PlayerData.DAMAGE_LEVEL_MOB_TAG, PlayerData.DAMAGE_LEVEL_PLAYER_TAG,
+      PlayerData.DEALT_DAMAGE_ADJUSTMENT_MOB_TAG, PlayerData.DEALT_DAMAGE_ADJUSTMENT_PLAYER_TAG,
+      PlayerData.HURT_DAMAGE_ADJUSTMENT_MOB_TAG, PlayerData.HURT_DAMAGE_ADJUSTMENT_PLAYER_TAG,
+      PlayerData.KILLS_MOB_TAG, PlayerData.KILLS_PLAYER_TAG, PlayerData.PLAYER_DEATHS_TAG,
+      PlayerData.NAME_TAG, PlayerData.DAMAGE_DEALT_TAG, PlayerData.WEAPON_CLASS_USAGE_TAG};
+  private static final FieldType[] FIELD_TYPES = {FieldType.BOOLEAN, FieldType.VARINT,
+      FieldType.VARINT, FieldType.VARINT, FieldType.VARINT, FieldType.VARINT, FieldType.VARINT,
+      FieldType.FLOAT, FieldType.FLOAT, FieldType.FLOAT, FieldType.FLOAT, FieldType.VARINT,
+      FieldType.VARINT, FieldType.VARINT, FieldType.STRING, FieldType.FLOAT, FieldType.INT_ARRAY};
+
+  protected PlayerDataCodec() {}
+
+  public static void encode(CompoundTag compoundTag, FriendlyByteBuf buffer) {
+    buffer.writeByte(CODEC_VERSION);
+
+    // General fields
+    int fieldMask = 0;
+    for (int index = 0; index < FIELDS.length; index++) {
+      if (compoundTag.contains(FIELDS[index])) {
+        fieldMask |= 1 << index;
+      }
+    }
+    buffer.writeVarInt(fieldMask);
+    for (int index = 0; index < FIELDS.length; index++) {
+      if ((fieldMask & (1 << index)) != 0) {
+        writeField(compoundTag, FIELDS[index], FIELD_TYPES[index], buffer);
+      }
+    }
+
+    // Weapon classes
+    CompoundTag[] weaponClassTags = new CompoundTag[WEAPON_CLASSES.length];
+    int weaponClassMask = 0;
+    ListTag weaponClassesListTag =
+        compoundTag.getList(PlayerData.WEAPON_CLASSES_TAG, Tag.TAG_COMPOUND);
+    for (int i = 0; i < weaponClassesListTag.size(); ++i) {
+      CompoundTag weaponClassTag = weaponClassesListTag.getCompound(i);
+      WeaponClass weaponClass =
+          getWeaponClass(weaponClassTag.getString(PlayerData.WEAPON_CLASS_TAG));
+      if (weaponClass != null) {
+        weaponClassTags[weaponClass.ordinal()] = weaponClassTag;
+        weaponClassMask |= 1 << weaponClass.ordinal();
+      }
+    }
+    buffer.writeVarInt(weaponClassMask);
+    for (CompoundTag weaponClassTag : weaponClassTags) {
+      if (weaponClassTag != null) {
+        buffer.writeVarInt(weaponClassTag.getInt(PlayerData.EXPERIENCE_TAG));
+        buffer.writeVarInt(weaponClassTag.getInt(PlayerData.EXPERIENCE_BASE_TAG));
+        buffer.writeVarInt(weaponClassTag.getInt(PlayerData.LEVEL_TAG));
+        buffer.writeFloat(weaponClassTag.getFloat(PlayerData.DAMAGE_ADJUSTMENT));
+        buffer.writeFloat(weaponClassTag.getFloat(PlayerData.DURABILITY_ADJUSTMENT));
+      }
+    }
+  }
+
+  public static CompoundTag decode(FriendlyByteBuf buffer) {
+    CompoundTag compoundTag = new CompoundTag();
+    int codecVersion = buffer.readByte();
+    if (codecVersion != CODEC_VERSION) {
+      log.error("Unable to decode player data with unknown codec version {}!", codecVersion);
+      buffer.skipBytes(buffer.readableBytes());
+      return compoundTag;
+    }
+
+    // General fields
+    int fieldMask = buffer.readVarInt();
+    for (int index = 0; index < FIELDS.length; index++) {
+      if ((fieldMask & (1 << index)) != 0) {
+        readField(compoundTag, FIELDS[index], FIELD_TYPES[index], buffer);
+      }
+    }
+
+    // Weapon classes
+    int weaponClassMask = buffer.readVarInt();
+    if (weaponClassMask != 0) {
+      ListTag weaponClassesListTag = new ListTag();
+      for (WeaponClass weaponClass : WEAPON_CLASSES) {
+        if ((weaponClassMask & (1 << weaponClass.ordinal())) != 0) {
+          CompoundTag weaponClassTag = new CompoundTag();
+          weaponClassTag.putString(PlayerData.WEAPON_CLASS_TAG, weaponClass.name());
+          weaponClassTag.putInt(PlayerData.EXPERIENCE_TAG, buffer.readVarInt());
+          weaponClassTag.putInt(PlayerData.EXPERIENCE_BASE_TAG, buffer.readVarInt());
+          weaponClassTag.putInt(PlayerData.LEVEL_TAG, buffer.readVarInt());
+          weaponClassTag.putFloat(PlayerData.DAMAGE_ADJUSTMENT, buffer.readFloat());
+          weaponClassTag.putFloat(PlayerData.DURABILITY_ADJUSTMENT, buffer.readFloat());
+          weaponClassesListTag.add(weaponClassTag);
+        }
+      }
+      compoundTag.put(PlayerData.WEAPON_CLASSES_TAG, weaponClassesListTag);
+    }
+    return compoundTag;
+  }
+
+  private static void writeField(CompoundTag compoundTag, String name, FieldType fieldType,
+      FriendlyByteBuf buffer) {
+    switch (fieldType) {
+      case BOOLEAN:
+        buffer.writeBoolean(compoundTag.getBoolean(name));
+        break;
+      case FLOAT:
+        buffer.writeFloat(compoundTag.getFloat(name));
+        break;
+      case INT_ARRAY:
+        writeWeaponClassArray(compoundTag.getIntArray(name), buffer);
+        break;
+      case STRING:
+        buffer.writeUtf(compoundTag.getString(name));
+        break;
+      case VARINT:
+        buffer.writeVarInt(compoundTag.getInt(name));
+        break;
+    }
+  }
+
+  private static void readField(CompoundTag compoundTag, String name, FieldType fieldType,
+      FriendlyByteBuf buffer) {
+    switch (fieldType) {
+      case BOOLEAN:
+        compoundTag.putBoolean(name, buffer.readBoolean());
+        break;
+      case FLOAT:
+        compoundTag.putFloat(name, buffer.readFloat());
+        break;
+      case INT_ARRAY:
+        compoundTag.putIntArray(name, readWeaponClassArray(buffer));
+        break;
+      case STRING:
+        compoundTag.putString(name, buffer.readUtf());
+        break;
+      case VARINT:
+        compoundTag.putInt(name, buffer.readVarInt());
+        break;
+    }
+  }
+
+  private static void writeWeaponClassArray(int[] values, FriendlyByteBuf buffer) {
+    int mask = 0;
+    for (int index = 0; index < values.length && index < WEAPON_CLASSES.length; index++) {
+      if (values[index] != 0) {
+        mask |= 1 << index;
+      }
+    }
+    buffer.writeVarInt(mask);
+    for (int index = 0; index < WEAPON_CLASSES.length; index++) {
+      if ((mask & (1 << index)) != 0) {
+        buffer.writeVarInt(values[index]);
+      }
+    }
+  }
+
+  private static int[] readWeaponClassArray(FriendlyByteBuf buffer) {
+    int[] values = new int[WEAPON_CLASSES.length];
+    int mask = buffer.readVarInt();
+    for (int index = 0; index < WEAPON_CLASSES.length; index++) {
+      if ((mask & (1 << index)) != 0) {
+        values[index] = buffer.readVarInt();
+      }
+    }
+    return values;
+  }
+
+  private static WeaponClass getWeaponClass(String name) {
+    try {
+      return WeaponClass.valueOf(name);
+    } catch (IllegalArgumentException exception) {
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.message;
+
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.network.FriendlyByteBuf;
+
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.Experience;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.ExperienceTables;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerClientData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClass;
+
+/**
+ * Effective experience settings of the server, so that the client calculates the same levels and
+ * adjustments from the synced counters.
+ */
+public class MessageExperienceSettings {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final WeaponClass[] WEAPON_CLASSES = WeaponClass.values();
+
+  protected final int experienceFactor;
+  protected final float experienceFactorItems;
+  protected final int experienceDeathPenalty;
+  protected final int experienceDeathPenaltyItems;
+  protected final ExperienceTables experienceTables;
+
+  public MessageExperienceSettings(int experienceFactor, float experienceFactorItems,
+      int experienceDeathPenalty, int experienceDeathPenaltyItems,
+      ExperienceTables experienceTables) {
+    this.experienceFactor = experienceFactor;
+    this.experienceFactorItems = experienceFactorItems;
+    this.experienceDeathPenalty = experienceDeathPenalty;
+    this.experienceDeathPenaltyItems = experienceDeathPenaltyItems;
+    this.experienceTables = experienceTables;
+  }
+
+  public static MessageExperienceSettings fromExperience() {
+    return new MessageExperienceSettings(Experience.getExperienceFactor(),
+        Experience.getExperienceFactorItems(), Experience.getExperienceDeathPenalty(),
+        Experience.getExperienceDeathPenaltyItems(), Experience.getExperienceTables());
+  }
+
+  public void encode(FriendlyByteBuf buffer) {
+    buffer.writeVarInt(this.experienceFactor);
+    buffer.writeFloat(this.experienceFactorItems);
+    buffer.writeVarInt(this.experienceDeathPenalty);
+    buffer.writeVarInt(this.experienceDeathPenaltyItems);
+    buffer.writeVarInt(this.experienceTables.getMaxLevel());
+    buffer.writeVarInt(this.experienceTables.getDealtDamageLevelCap());
+    buffer.writeVarInt(this.experienceTables.getDealtDamageIncrease());
+    buffer.writeVarInt(this.experienceTables.getDealtDamageReduction());
+    buffer.writeVarInt(this.experienceTables.getHurtDamageLevelCap());
+    buffer.writeVarInt(this.experienceTables.getHurtDamageIncrease());
+    buffer.writeVarInt(this.experienceTables.getHurtDamageReduction());
+    for (WeaponClass weaponClass : WEAPON_CLASSES) {
+      buffer.writeVarInt(this.experienceTables.getWeaponClassDamageIncrease(weaponClass));
+      buffer.writeVarInt(this.experienceTables.getWeaponClassDurabilityIncrease(weaponClass));
+    }
+  }
+
+  public static MessageExperienceSettings decode(FriendlyByteBuf buffer) {
+    int experienceFactor = buffer.readVarInt();
+    float experienceFactorItems = buffer.readFloat();
+    int experienceDeathPenalty = buffer.readVarInt();
+    int experienceDeathPenaltyItems = buffer.readVarInt();
+    int maxLevel = buffer.readVarInt();
+    int dealtDamageLevelCap = buffer.readVarInt();
+    int dealtDamageIncrease = buffer.readVarInt();
+    int dealtDamageReduction = buffer.readVarInt();
+    int hurtDamageLevelCap = buffer.readVarInt();
+    int hurtDamageIncrease = buffer.readVarInt();
+    int hurtDamageReduction = buffer.readVarInt();
+    int[] weaponClassDamageIncrease = new int[WEAPON_CLASSES.length];
+    int[] weaponClassDurabilityIncrease = new int[WEAPON_CLASSES.length];
+    for (int index = 0; index < WEAPON_CLASSES.length; index++) {
+      weaponClassDamageIncrease[index] = buffer.readVarInt();
+      weaponClassDurabilityIncrease[index] = buffer.readVarInt();
+    }
+    return new MessageExperienceSettings(experienceFactor, experienceFactorItems,
+        experienceDeathPenalty, experienceDeathPenaltyItems,
+        new ExperienceTables(maxLevel, dealtDamageLevelCap, dealtDamageIncrease,
+            dealtDamageReduction, hurtDamageLevelCap, hurtDamageIncrease, hurtDamageReduction,
+            weaponClassDamageIncrease, weaponClassDurabilityIncrease));
+  }
+
+  public static void handle(MessageExperienceSettings message,
+      Supplier<NetworkEvent.Context> contextSupplier) {
+    NetworkEvent.Context context = contextSupplier.get();
+
+    // Integrated server and client are already sharing the same settings.
+    if (!context.getNetworkManager().isMemoryConnection()) {
+      context.enqueueWork(
+          () -> DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> handlePacket(message)));
+    }
+    context.setPacketHandled(true);
+  }
+
+  public static void handlePacket(MessageExperienceSettings message) {
+    Experience.loadServerSettings(message.experienceFactor, message.experienceFactorItems,
+        message.experienceDeathPenalty, message.experienceDeathPenaltyItems,
+        message.experienceTables);
+    PlayerClientData.reload();
+  }
+
+}
@@ -38,21 +38,15 @@ public class MessagePlayerData {
   protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
 
   protected final CompoundTag data;
-  protected final String playerUUID;
 
-  public MessagePlayerData(String playerUUID, CompoundTag data) {
+  public MessagePlayerData(CompoundTag data) {
     this.data = data;
-    this.playerUUID = playerUUID;
   }
 
   public CompoundTag getData() {
     return this.data;
   }
 
-  public String getPlayerUUID() {
-    return this.playerUUID;
-  }
-
   public static void handle(MessagePlayerData message,
       Supplier<NetworkEvent.Context> contextSupplier) {
     NetworkEvent.Context context = contextSupplier.get();
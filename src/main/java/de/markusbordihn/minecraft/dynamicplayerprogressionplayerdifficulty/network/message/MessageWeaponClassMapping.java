@@ -0,0 +1,102 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.network.message;
+
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.network.FriendlyByteBuf;
+
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClass;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClassData;
+
+/**
+ * Weapon class mapping of the server as item registry ids grouped by weapon class.
+ *
+ * Format: for each weapon class in ordinal order the number of items (varint) followed by the
+ * sorted registry ids as difference to the previous id (varint).
+ */
+public class MessageWeaponClassMapping {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final int NUMBER_OF_WEAPON_CLASSES = WeaponClass.values().length;
+
+  protected final int[][] itemIds;
+
+  public MessageWeaponClassMapping(int[][] itemIds) {
+    this.itemIds = itemIds;
+  }
+
+  public int[][] getItemIds() {
+    return this.itemIds;
+  }
+
+  public void encode(FriendlyByteBuf buffer) {
+    for (int index = 0; index < NUMBER_OF_WEAPON_CLASSES; index++) {
+      int[] ids = index < this.itemIds.length && this.itemIds[index] != null ? this.itemIds[index]
+          : new int[0];
+      buffer.writeVarInt(ids.length);
+      int lastId = 0;
+      for (int id : ids) {
+        buffer.writeVarInt(id - lastId);
+        lastId = id;
+      }
+    }
+  }
+
+  public static MessageWeaponClassMapping decode(FriendlyByteBuf buffer) {
+    int[][] itemIds = new int[NUMBER_OF_WEAPON_CLASSES][];
+    for (int index = 0; index < NUMBER_OF_WEAPON_CLASSES; index++) {
+      int[] ids = new int[buffer.readVarInt()];
+      int lastId = 0;
+      for (int i = 0; i < ids.length; i++) {
+        lastId += buffer.readVarInt();
+        ids[i] = lastId;
+      }
+      itemIds[index] = ids;
+    }
+    return new MessageWeaponClassMapping(itemIds);
+  }
+
+  public static void handle(MessageWeaponClassMapping message,
+      Supplier<NetworkEvent.Context> contextSupplier) {
+    NetworkEvent.Context context = contextSupplier.get();
+
+    // Integrated server and client are already sharing the same mapping.
+    if (!context.getNetworkManager().isMemoryConnection()) {
+      context.enqueueWork(
+          () -> DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> handlePacket(message)));
+    }
+    context.setPacketHandled(true);
+  }
+
+  public static void handlePacket(MessageWeaponClassMapping message) {
+    WeaponClassData.loadWeaponClassItemIds(message.getItemIds());
+  }
+
+}
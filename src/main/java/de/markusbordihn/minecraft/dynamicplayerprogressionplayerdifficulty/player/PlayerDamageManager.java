@@ -23,6 +23,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.InteractionHand;
 import net.minecraft.world.damagesource.DamageSource;
 
 import net.minecraftforge.event.entity.living.LivingDamageEvent;
@@ -33,6 +34,7 @@ import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
 import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerDataManager;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.item.WeaponAdjustmentManager;
 
 @EventBusSubscriber
 public class PlayerDamageManager {
@@ -41,7 +43,13 @@ public class PlayerDamageManager {
 
   protected PlayerDamageManager() {}
 
-  @SubscribeEvent(priority = EventPriority.LOW)
+  /**
+   * Combined combat pipeline for damage caused by players, which resolves the player data and the
+   * hand item only once per hit and applies the dealt damage and the weapon class stage in the
+   * same order as before. It runs at LOWEST like the former weapon class listener, so that the
+   * weapon class adjustment still sees the damage of all other listeners.
+   */
+  @SubscribeEvent(priority = EventPriority.LOWEST)
   public static void handleLivingDamageEvent(LivingDamageEvent event) {
     DamageSource damageSource = event.getSource();
 
@@ -49,28 +57,42 @@ public class PlayerDamageManager {
     if (damageSource.getEntity() instanceof ServerPlayer serverPlayer) {
       PlayerData playerData = PlayerDataManager.getPlayer(serverPlayer);
       if (playerData != null) {
-        float lastAttackDamage = event.getAmount();
-        float attackDamage = lastAttackDamage;
-        if (event.getEntity() instanceof ServerPlayer) {
-          if (playerData.getDealtDamageAdjustmentPlayer() > 0.0f) {
-            attackDamage = attackDamage * playerData.getDealtDamageAdjustmentPlayer();
-            log.debug("[Player Dealt Damage] {} from {} by factor {} to {}", serverPlayer,
-                lastAttackDamage, playerData.getDealtDamageAdjustmentPlayer(), attackDamage);
-          }
-        } else {
-          if (playerData.getDealtDamageAdjustmentMob() > 0.0f) {
-            attackDamage = attackDamage * playerData.getDealtDamageAdjustmentMob();
-            log.debug("[Dealt Damage] {} from {} by factor {} to {}", serverPlayer,
-                lastAttackDamage, playerData.getDealtDamageAdjustmentMob(), attackDamage);
-          }
-        }
+        float originalAttackDamage = event.getAmount();
+
+        // Stage 1: Dealt damage adjustment based on the damage level.
+        float attackDamage = adjustDealtDamage(serverPlayer, playerData,
+            event.getEntity() instanceof ServerPlayer, originalAttackDamage);
+
+        // Stage 2: Weapon class damage and durability adjustments.
+        attackDamage = WeaponAdjustmentManager.adjustAttackDamage(serverPlayer, playerData,
+            serverPlayer.getItemInHand(InteractionHand.MAIN_HAND), attackDamage);
 
         // Adjust attack damage, if there is any different
-        if (event.getAmount() != attackDamage) {
+        if (originalAttackDamage != attackDamage) {
           event.setAmount(attackDamage);
+          if (log.isDebugEnabled()) {
+            log.debug("[Combat Damage] {} from {} to {}", serverPlayer, originalAttackDamage,
+                attackDamage);
+          }
         }
       }
     }
   }
 
+  private static float adjustDealtDamage(ServerPlayer serverPlayer, PlayerData playerData,
+      boolean isPlayerTarget, float attackDamage) {
+    float damageAdjustment = isPlayerTarget ? playerData.getDealtDamageAdjustmentPlayer()
+        : playerData.getDealtDamageAdjustmentMob();
+    if (damageAdjustment <= 0.0f) {
+      return attackDamage;
+    }
+    float adjustedAttackDamage = attackDamage * damageAdjustment;
+    if (log.isDebugEnabled()) {
+      log.debug("[{}] {} from {} by factor {} to {}",
+          isPlayerTarget ? "Player Dealt Damage" : "Dealt Damage", serverPlayer, attackDamage,
+          damageAdjustment, adjustedAttackDamage);
+    }
+    return adjustedAttackDamage;
+  }
+
 }
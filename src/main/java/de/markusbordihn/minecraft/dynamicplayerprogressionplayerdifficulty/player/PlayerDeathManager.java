@@ -23,6 +23,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.InteractionHand;
 import net.minecraft.world.damagesource.DamageSource;
 import net.minecraft.world.entity.LivingEntity;
 
@@ -49,14 +50,15 @@ public class PlayerDeathManager {
     if (livingEntity instanceof ServerPlayer serverPlayer) {
       log.debug("Player {} was killed by {} with {}", livingEntity, serverPlayer,
           damageSource.getDirectEntity());
-      PlayerDataManager.updatePlayer(serverPlayer);
+      PlayerDataManager.scheduleUpdatePlayer(serverPlayer);
     }
 
     // Update stats if player was reason of death, regardless of weapon.
     if (damageSource.getEntity() instanceof ServerPlayer serverPlayer) {
       log.debug("LivingEntity {} was killed by {} with {}", livingEntity, serverPlayer,
           damageSource.getDirectEntity());
-      PlayerDataManager.updatePlayer(serverPlayer);
+      PlayerDataManager.scheduleUpdatePlayer(serverPlayer,
+          serverPlayer.getItemInHand(InteractionHand.MAIN_HAND).getItem());
     }
   }
 
@@ -50,7 +50,7 @@ public class PlayerLogin {
         ServerLifecycleHooks.getCurrentServer().getPlayerList().getPlayerByName(username);
     PlayerData playerData = PlayerDataManager.addPlayer(player);
     log.info("Player {} ({}) logged in with data {}", username, player, playerData);
-    PlayerServerDataClientSync.syncPlayerData(playerData);
+    PlayerServerDataClientSync.syncPlayerData(playerData, true);
   }
 
   @SubscribeEvent
@@ -60,6 +60,8 @@ public class PlayerLogin {
       return;
     }
     log.info("Player {} logged out", username);
+    PlayerServerDataClientSync.removePlayer(event.getEntity().getUUID());
+    PlayerDataManager.removePlayer(event.getEntity().getUUID());
   }
 
 }
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+
+/**
+ * Append-only binary log for all player records. Each save appends the changed records, the latest
+ * entry per player wins. The log is compacted, as soon as it contains too many outdated entries.
+ *
+ * Entry format: player UUID (2 x long), length of the record (int) and the compressed NBT record.
+ */
+public class AppendLogStorage implements PlayerRecordStorage {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final String LOG_FILE_NAME = "players.log";
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+  private static final int ENTRY_HEADER_SIZE = Long.BYTES * 2 + Integer.BYTES;
+  private static final int MIN_ENTRIES_FOR_COMPACTION = 1000;
+
+  private final int compactionRatio;
+
+  private Path logFile;
+  private Object logFileKey;
+  private FileChannel fileChannel;
+
+  // Position and length of the latest record per player inside the log.
+  private final Map<UUID, long[]> recordIndex = new HashMap<>();
+  private long indexedSize = 0;
+  private long numberOfEntries = 0;
+  private long numberOfCompactions = 0;
+
+  public AppendLogStorage(int compactionRatio) {
+    this.compactionRatio = Math.max(2, compactionRatio);
+  }
+
+  @Override
+  public String getName() {
+    return "Append-Log";
+  }
+
+  @Override
+  public synchronized void open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    this.logFile = directory.resolve(LOG_FILE_NAME);
+    openLogFile();
+  }
+
+  @Override
+  public synchronized CompoundTag load(UUID playerUUID) throws IOException {
+    long[] recordPosition = this.recordIndex.get(playerUUID);
+    if (recordPosition == null) {
+      return null;
+    }
+    ByteBuffer recordBuffer = ByteBuffer.allocate((int) recordPosition[1]);
+    readFully(recordBuffer, recordPosition[0]);
+    return NbtIo.readCompressed(new ByteArrayInputStream(recordBuffer.array()));
+  }
+
+  @Override
+  public synchronized void save(Map<UUID, CompoundTag> records) throws IOException {
+    if (records.isEmpty()) {
+      return;
+    }
+
+    // Serialize the whole batch first, so that it is written with a single append.
+    ByteArrayOutputStream batchOutputStream = new ByteArrayOutputStream();
+    Map<UUID, long[]> batchIndex = new HashMap<>();
+    long position = this.fileChannel.size();
+    for (Map.Entry<UUID, CompoundTag> record : records.entrySet()) {
+      ByteArrayOutputStream recordOutputStream = new ByteArrayOutputStream();
+      NbtIo.writeCompressed(record.getValue(), recordOutputStream);
+      byte[] recordData = recordOutputStream.toByteArray();
+      ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+      header.putLong(record.getKey().getMostSignificantBits());
+      header.putLong(record.getKey().getLeastSignificantBits());
+      header.putInt(recordData.length);
+      batchOutputStream.write(header.array());
+      batchOutputStream.write(recordData);
+      batchIndex.put(record.getKey(), new long[] {
+          position + batchOutputStream.size() - recordData.length, recordData.length});
+    }
+    ByteBuffer batchBuffer = ByteBuffer.wrap(batchOutputStream.toByteArray());
+    while (batchBuffer.hasRemaining()) {
+      position += this.fileChannel.write(batchBuffer, position);
+    }
+    this.fileChannel.force(false);
+    this.recordIndex.putAll(batchIndex);
+    this.indexedSize = position;
+    this.numberOfEntries += batchIndex.size();
+
+    if (this.numberOfEntries >= MIN_ENTRIES_FOR_COMPACTION
+        && this.numberOfEntries > (long) this.recordIndex.size() * this.compactionRatio) {
+      compact();
+    }
+  }
+
+  @Override
+  public synchronized void refresh() throws IOException {
+    // New entries of another process are indexed from the last known end of the same log.
+    Object fileKey = getLogFileKey();
+    if (fileKey != null && fileKey.equals(this.logFileKey)
+        && this.fileChannel.size() >= this.indexedSize) {
+      readRecordIndex(this.indexedSize);
+      return;
+    }
+
+    // The log was replaced by a compacted log of another process, so reopen and reindex it.
+    close();
+    openLogFile();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.fileChannel != null) {
+      this.fileChannel.close();
+      this.fileChannel = null;
+    }
+  }
+
+  public synchronized long getNumberOfCompactions() {
+    return this.numberOfCompactions;
+  }
+
+  /** Rewrites the log with the latest entry per player only. */
+  private void compact() throws IOException {
+    long startTime = System.currentTimeMillis();
+    long formerNumberOfEntries = this.numberOfEntries;
+    Path tempFile = this.logFile.resolveSibling(LOG_FILE_NAME + TEMP_FILE_EXTENSION);
+    Map<UUID, long[]> compactedIndex = new HashMap<>();
+    try (FileChannel tempChannel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      long position = 0;
+      for (Map.Entry<UUID, long[]> record : this.recordIndex.entrySet()) {
+        long[] recordPosition = record.getValue();
+        ByteBuffer entryBuffer = ByteBuffer.allocate(ENTRY_HEADER_SIZE + (int) recordPosition[1]);
+        entryBuffer.putLong(record.getKey().getMostSignificantBits());
+        entryBuffer.putLong(record.getKey().getLeastSignificantBits());
+        entryBuffer.putInt((int) recordPosition[1]);
+        readFully(entryBuffer, recordPosition[0]);
+        entryBuffer.flip();
+        compactedIndex.put(record.getKey(),
+            new long[] {position + ENTRY_HEADER_SIZE, recordPosition[1]});
+        while (entryBuffer.hasRemaining()) {
+          position += tempChannel.write(entryBuffer, position);
+        }
+      }
+      tempChannel.force(true);
+    }
+
+    this.fileChannel.close();
+    try {
+      Files.move(tempFile, this.logFile, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException exception) {
+      Files.move(tempFile, this.logFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    this.fileChannel = FileChannel.open(this.logFile, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    this.logFileKey = getLogFileKey();
+    this.recordIndex.clear();
+    this.recordIndex.putAll(compactedIndex);
+    this.indexedSize = this.fileChannel.size();
+    this.numberOfEntries = compactedIndex.size();
+    this.numberOfCompactions++;
+    log.info("{} compacted player record log from {} to {} entries in {}ms.",
+        Constants.LOG_ICON_NAME, formerNumberOfEntries, this.numberOfEntries,
+        System.currentTimeMillis() - startTime);
+  }
+
+  private void openLogFile() throws IOException {
+    this.fileChannel = FileChannel.open(this.logFile, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.logFileKey = getLogFileKey();
+    this.recordIndex.clear();
+    this.numberOfEntries = 0;
+    readRecordIndex(0);
+  }
+
+  /** Identity of the log file, which changes if the log is replaced by a compacted log. */
+  private Object getLogFileKey() throws IOException {
+    return Files.readAttributes(this.logFile, BasicFileAttributes.class).fileKey();
+  }
+
+  /**
+   * Reads the index of the log from the given position and truncates an incomplete last entry,
+   * e.g. after a crash.
+   */
+  private void readRecordIndex(long startPosition) throws IOException {
+    long size = this.fileChannel.size();
+    long position = startPosition;
+    ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+    while (position + ENTRY_HEADER_SIZE <= size) {
+      header.clear();
+      readFully(header, position);
+      header.flip();
+      UUID playerUUID = new UUID(header.getLong(), header.getLong());
+      int length = header.getInt();
+      if (length < 0 || position + ENTRY_HEADER_SIZE + length > size) {
+        break;
+      }
+      this.recordIndex.put(playerUUID, new long[] {position + ENTRY_HEADER_SIZE, length});
+      this.numberOfEntries++;
+      position += ENTRY_HEADER_SIZE + length;
+    }
+    if (position < size) {
+      log.warn("{} truncating incomplete player record log entry at {} of {} bytes.",
+          Constants.LOG_ICON_NAME, position, size);
+      this.fileChannel.truncate(position);
+    }
+    this.indexedSize = position;
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    long readPosition = position;
+    while (buffer.hasRemaining()) {
+      int read = this.fileChannel.read(buffer, readPosition);
+      if (read < 0) {
+        throw new IOException("Unexpected end of player record log at " + readPosition);
+      }
+      readPosition += read;
+    }
+  }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+
+/**
+ * Embedded JDBC database like H2 or SQLite with one row per player and batched upserts. The H2
+ * driver is bundled with the mod, other JDBC drivers need to be provided by another mod or the
+ * server.
+ */
+public class JdbcStorage implements PlayerRecordStorage {
+
+  private static final String DEFAULT_DATABASE_NAME = "players";
+  private static final String H2_URL_PREFIX = "jdbc:h2:";
+  private static final String H2_AUTO_SERVER_OPTION = ";AUTO_SERVER=TRUE";
+  private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS player_records "
+      + "(uuid VARCHAR(36) PRIMARY KEY, data BLOB NOT NULL)";
+  private static final String SELECT_SQL = "SELECT data FROM player_records WHERE uuid = ?";
+  private static final String MERGE_SQL =
+      "MERGE INTO player_records (uuid, data) KEY (uuid) VALUES (?, ?)";
+  private static final String SQLITE_UPSERT_SQL =
+      "INSERT OR REPLACE INTO player_records (uuid, data) VALUES (?, ?)";
+
+  private final String configuredUrl;
+  private final boolean sharedAccess;
+  private String url;
+  private Connection connection;
+
+  public JdbcStorage(String configuredUrl) {
+    this(configuredUrl, false);
+  }
+
+  /**
+   * With shared access an embedded H2 database is opened in the auto server mode, so that several
+   * servers could open the same database file.
+   */
+  public JdbcStorage(String configuredUrl, boolean sharedAccess) {
+    this.configuredUrl = configuredUrl;
+    this.sharedAccess = sharedAccess;
+  }
+
+  @Override
+  public String getName() {
+    return "JDBC";
+  }
+
+  @Override
+  public synchronized void open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    this.url = this.configuredUrl == null || this.configuredUrl.isBlank()
+        ? H2_URL_PREFIX + "file:" + directory.resolve(DEFAULT_DATABASE_NAME).toAbsolutePath()
+        : this.configuredUrl;
+    if (this.sharedAccess && isEmbeddedH2Url(this.url)
+        && !this.url.toUpperCase().contains(";AUTO_SERVER=")) {
+      this.url += H2_AUTO_SERVER_OPTION;
+    }
+    try {
+      // The bundled H2 driver is used directly, because it is not visible for the driver manager.
+      this.connection = this.url.startsWith(H2_URL_PREFIX)
+          ? org.h2.Driver.load().connect(this.url, new Properties())
+          : DriverManager.getConnection(this.url);
+      if (this.connection == null) {
+        throw new SQLException("No JDBC driver found for " + this.url);
+      }
+      try (Statement statement = this.connection.createStatement()) {
+        statement.execute(CREATE_TABLE_SQL);
+      }
+    } catch (SQLException exception) {
+      throw new IOException("Unable to open database " + this.url, exception);
+    } catch (LinkageError error) {
+      // The bundled H2 driver is missing, e.g. with a jar without the Jar-in-Jar libraries.
+      throw new IOException("Unable to load database driver for " + this.url, error);
+    }
+  }
+
+  @Override
+  public synchronized CompoundTag load(UUID playerUUID) throws IOException {
+    try (PreparedStatement statement = this.connection.prepareStatement(SELECT_SQL)) {
+      statement.setString(1, playerUUID.toString());
+      try (ResultSet resultSet = statement.executeQuery()) {
+        if (!resultSet.next()) {
+          return null;
+        }
+        return NbtIo.readCompressed(new ByteArrayInputStream(resultSet.getBytes(1)));
+      }
+    } catch (SQLException exception) {
+      throw new IOException("Unable to load player record " + playerUUID, exception);
+    }
+  }
+
+  @Override
+  public synchronized void save(Map<UUID, CompoundTag> records) throws IOException {
+    if (records.isEmpty()) {
+      return;
+    }
+    String upsertSql = this.url.startsWith("jdbc:sqlite:") ? SQLITE_UPSERT_SQL : MERGE_SQL;
+    try {
+      this.connection.setAutoCommit(false);
+      try (PreparedStatement statement = this.connection.prepareStatement(upsertSql)) {
+        for (Map.Entry<UUID, CompoundTag> record : records.entrySet()) {
+          ByteArrayOutputStream recordOutputStream = new ByteArrayOutputStream();
+          NbtIo.writeCompressed(record.getValue(), recordOutputStream);
+          statement.setString(1, record.getKey().toString());
+          statement.setBytes(2, recordOutputStream.toByteArray());
+          statement.addBatch();
+        }
+        statement.executeBatch();
+        this.connection.commit();
+      } catch (SQLException | IOException exception) {
+        this.connection.rollback();
+        throw exception;
+      } finally {
+        this.connection.setAutoCommit(true);
+      }
+    } catch (SQLException exception) {
+      throw new IOException("Unable to save " + records.size() + " player records", exception);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.connection == null) {
+      return;
+    }
+    try {
+      this.connection.close();
+    } catch (SQLException exception) {
+      throw new IOException("Unable to close database " + this.url, exception);
+    } finally {
+      this.connection = null;
+    }
+  }
+
+  /** In-memory and remote H2 databases are not using a local database file. */
+  private static boolean isEmbeddedH2Url(String url) {
+    return url.startsWith(H2_URL_PREFIX) && !url.startsWith(H2_URL_PREFIX + "mem:")
+        && !url.startsWith(H2_URL_PREFIX + "tcp:") && !url.startsWith(H2_URL_PREFIX + "ssl:");
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+
+/**
+ * One compressed NBT file per player. Each record is written to a temporary file, which replaces
+ * the former record file with an atomic move.
+ */
+public class NbtFileStorage implements PlayerRecordStorage {
+
+  private static final String RECORD_FILE_EXTENSION = ".dat";
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+  private Path directory;
+
+  @Override
+  public String getName() {
+    return "NBT";
+  }
+
+  @Override
+  public void open(Path directory) throws IOException {
+    this.directory = directory;
+    Files.createDirectories(directory);
+  }
+
+  @Override
+  public CompoundTag load(UUID playerUUID) throws IOException {
+    File recordFile = getRecordFile(playerUUID);
+    return recordFile.exists() ? NbtIo.readCompressed(recordFile) : null;
+  }
+
+  @Override
+  public void save(Map<UUID, CompoundTag> records) throws IOException {
+    for (Map.Entry<UUID, CompoundTag> record : records.entrySet()) {
+      File recordFile = getRecordFile(record.getKey());
+      File tempFile =
+          new File(recordFile.getParentFile(), recordFile.getName() + TEMP_FILE_EXTENSION);
+      NbtIo.writeCompressed(record.getValue(), tempFile);
+      try {
+        Files.move(tempFile.toPath(), recordFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException exception) {
+        Files.move(tempFile.toPath(), recordFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    // Nothing to close, all files are closed after each read and write.
+  }
+
+  private File getRecordFile(UUID playerUUID) {
+    return this.directory.resolve(playerUUID.toString() + RECORD_FILE_EXTENSION).toFile();
+  }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import net.minecraft.nbt.CompoundTag;
+
+/**
+ * Storage for the player records. Implementations need to be thread-safe, because records are
+ * written on the I/O thread and read on the server thread.
+ */
+public interface PlayerRecordStorage {
+
+  String getName();
+
+  void open(Path directory) throws IOException;
+
+  /** Returns the stored record or null, if there is no record for the player. */
+  CompoundTag load(UUID playerUUID) throws IOException;
+
+  /** Saves all records as a single batch. */
+  void save(Map<UUID, CompoundTag> records) throws IOException;
+
+  /** Drops any in-memory state, after the records were changed by another process. */
+  default void refresh() throws IOException {}
+
+  void close() throws IOException;
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.WeaponClass;
+
+/**
+ * Backend independent benchmark, which saves and loads synthetic player records inside a temporary
+ * directory. This should not be called on the server thread.
+ */
+public class PlayerRecordStorageBenchmark {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  public static final int DEFAULT_NUMBER_OF_PLAYERS = 10000;
+  private static final int BATCH_SIZE = 500;
+  private static final int REWRITE_PASSES = 5;
+  private static final long RANDOM_SEED = 42L;
+
+  protected PlayerRecordStorageBenchmark() {}
+
+  public static String run(StorageBackend storageBackend, int numberOfPlayers) {
+    Map<UUID, CompoundTag> records = createSyntheticRecords(numberOfPlayers);
+    List<UUID> playerUUIDs = new ArrayList<>(records.keySet());
+    Collections.shuffle(playerUUIDs, new Random(RANDOM_SEED));
+
+    Path directory = null;
+    PlayerRecordStorage storage = PlayerRecordStorageManager.create(storageBackend);
+    try {
+      directory = Files.createTempDirectory(Constants.MOD_ID + "-storage-benchmark");
+      storage.open(directory);
+
+      // Save in batches like the autosave.
+      long saveTime = saveInBatches(storage, records);
+
+      // Rewrite the changed records like several autosaves, which also covers the compaction.
+      long rewriteTime = 0;
+      for (int pass = 1; pass <= REWRITE_PASSES; pass++) {
+        for (CompoundTag compoundTag : records.values()) {
+          compoundTag.putInt(PlayerData.KILLS_MOB_TAG,
+              compoundTag.getInt(PlayerData.KILLS_MOB_TAG) + 1);
+        }
+        rewriteTime += saveInBatches(storage, records);
+      }
+      int rewrittenRecords = numberOfPlayers * REWRITE_PASSES;
+
+      // Load in random order like the player logins.
+      long loadStartTime = System.nanoTime();
+      int loadedRecords = 0;
+      for (UUID playerUUID : playerUUIDs) {
+        if (storage.load(playerUUID) != null) {
+          loadedRecords++;
+        }
+      }
+      long loadTime = System.nanoTime() - loadStartTime;
+      String compactions = storage instanceof AppendLogStorage appendLogStorage
+          ? String.format(", %s compactions", appendLogStorage.getNumberOfCompactions())
+          : "";
+      storage.close();
+
+      return String.format(
+          "%s: saved %s records in %sms (%s/s), rewrote %s records in %sms (%s/s)%s, "
+              + "loaded %s records in %sms (%s/s), %s KB on disk",
+          storage.getName(), numberOfPlayers, saveTime / 1000000,
+          getThroughput(numberOfPlayers, saveTime), rewrittenRecords, rewriteTime / 1000000,
+          getThroughput(rewrittenRecords, rewriteTime), compactions, loadedRecords,
+          loadTime / 1000000, getThroughput(loadedRecords, loadTime),
+          getDirectorySize(directory) / 1024);
+    } catch (IOException exception) {
+      log.error("{} storage benchmark for {} failed: {}", Constants.LOG_ICON_NAME,
+          storage.getName(), exception);
+      return String.format("%s: not available (%s)", storage.getName(), exception.getMessage());
+    } finally {
+      try {
+        storage.close();
+      } catch (IOException exception) {
+        log.warn("{} unable to close {} storage: {}", Constants.LOG_ICON_NAME, storage.getName(),
+            exception);
+      }
+      deleteDirectory(directory);
+    }
+  }
+
+  /** Synthetic player records with the same structure as the stored player data. */
+  public static Map<UUID, CompoundTag> createSyntheticRecords(int numberOfPlayers) {
+    Random random = new Random(RANDOM_SEED);
+    Map<UUID, CompoundTag> records = new LinkedHashMap<>(numberOfPlayers * 2);
+    for (int i = 0; i < numberOfPlayers; i++) {
+      UUID playerUUID = new UUID(random.nextLong(), random.nextLong());
+      CompoundTag compoundTag = new CompoundTag();
+      compoundTag.putBoolean(PlayerData.PVP_ENABLED_TAG, random.nextBoolean());
+      compoundTag.putInt(PlayerData.EXPERIENCE_PENALTY_GENERAL_TAG, random.nextInt(1000));
+      compoundTag.putInt(PlayerData.EXPERIENCE_PENALTY_WEAPON_CLASS_TAG, random.nextInt(500));
+      compoundTag.putInt(PlayerData.DAMAGE_EXPERIENCE_MOB_TAG, random.nextInt(100000));
+      compoundTag.putInt(PlayerData.DAMAGE_EXPERIENCE_PLAYER_TAG, random.nextInt(10000));
+      compoundTag.putInt(PlayerData.DAMAGE_LEVEL_MOB_TAG, 1 + random.nextInt(100));
+      compoundTag.putInt(PlayerData.DAMAGE_LEVEL_PLAYER_TAG, 1 + random.nextInt(100));
+      compoundTag.putFloat(PlayerData.DEALT_DAMAGE_ADJUSTMENT_MOB_TAG, random.nextFloat());
+      compoundTag.putFloat(PlayerData.DEALT_DAMAGE_ADJUSTMENT_PLAYER_TAG, random.nextFloat());
+      compoundTag.putFloat(PlayerData.HURT_DAMAGE_ADJUSTMENT_MOB_TAG, random.nextFloat());
+      compoundTag.putFloat(PlayerData.HURT_DAMAGE_ADJUSTMENT_PLAYER_TAG, random.nextFloat());
+      ListTag weaponClassesListTag = new ListTag();
+      for (WeaponClass weaponClass : WeaponClass.values()) {
+        CompoundTag weaponClassTag = new CompoundTag();
+        weaponClassTag.putString(PlayerData.WEAPON_CLASS_TAG, weaponClass.name());
+        weaponClassTag.putInt(PlayerData.EXPERIENCE_TAG, random.nextInt(10000));
+        weaponClassTag.putInt(PlayerData.EXPERIENCE_BASE_TAG, random.nextInt(10000));
+        weaponClassTag.putInt(PlayerData.LEVEL_TAG, 1 + random.nextInt(100));
+        weaponClassTag.putFloat(PlayerData.DAMAGE_ADJUSTMENT, random.nextFloat());
+        weaponClassTag.putFloat(PlayerData.DURABILITY_ADJUSTMENT, random.nextFloat());
+        weaponClassesListTag.add(weaponClassTag);
+      }
+      compoundTag.put(PlayerData.WEAPON_CLASSES_TAG, weaponClassesListTag);
+      compoundTag.putInt(PlayerData.KILLS_MOB_TAG, random.nextInt(10000));
+      compoundTag.putInt(PlayerData.KILLS_PLAYER_TAG, random.nextInt(100));
+      compoundTag.putInt(PlayerData.PLAYER_DEATHS_TAG, random.nextInt(100));
+      compoundTag.putString(PlayerData.NAME_TAG, "Player" + i);
+      compoundTag.putUUID(PlayerData.UUID_TAG, playerUUID);
+      records.put(playerUUID, compoundTag);
+    }
+    return records;
+  }
+
+  /** Saves the records in batches like the autosave and returns the save time in nanoseconds. */
+  private static long saveInBatches(PlayerRecordStorage storage, Map<UUID, CompoundTag> records)
+      throws IOException {
+    long startTime = System.nanoTime();
+    Map<UUID, CompoundTag> batch = new LinkedHashMap<>();
+    for (Map.Entry<UUID, CompoundTag> record : records.entrySet()) {
+      batch.put(record.getKey(), record.getValue());
+      if (batch.size() >= BATCH_SIZE) {
+        storage.save(batch);
+        batch.clear();
+      }
+    }
+    storage.save(batch);
+    return System.nanoTime() - startTime;
+  }
+
+  private static long getThroughput(int numberOfRecords, long time) {
+    return time > 0 ? numberOfRecords * 1000000000L / time : 0;
+  }
+
+  private static long getDirectorySize(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+    }
+  }
+
+  private static void deleteDirectory(Path directory) {
+    if (directory == null) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    } catch (IOException exception) {
+      log.warn("{} unable to delete benchmark directory {}: {}", Constants.LOG_ICON_NAME,
+          directory, exception);
+    }
+  }
+
+}
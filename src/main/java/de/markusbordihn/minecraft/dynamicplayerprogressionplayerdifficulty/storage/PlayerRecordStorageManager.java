@@ -0,0 +1,119 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.server.MinecraftServer;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.config.CommonConfig;
+
+public class PlayerRecordStorageManager {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final CommonConfig.Config COMMON = CommonConfig.COMMON;
+
+  private static String serverSlot = null;
+
+  protected PlayerRecordStorageManager() {}
+
+  public static boolean isSharedStorage() {
+    return !COMMON.storageSharedDirectory.get().isBlank();
+  }
+
+  public static Path getSharedDirectory() {
+    return Paths.get(COMMON.storageSharedDirectory.get().trim());
+  }
+
+  public static String getServerSlot() {
+    return serverSlot != null ? serverSlot : COMMON.storageServerSlot.get().trim();
+  }
+
+  /**
+   * Uses the configured server slot or derives a server slot from the host name and port of the
+   * server, so that several servers are not sharing the same counters by default.
+   */
+  public static void prepareServerSlot(MinecraftServer server) {
+    String configuredServerSlot = COMMON.storageServerSlot.get().trim();
+    if (!configuredServerSlot.isEmpty() || server == null) {
+      serverSlot = configuredServerSlot;
+      return;
+    }
+    String hostName;
+    try {
+      hostName = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException exception) {
+      hostName = "localhost";
+    }
+    serverSlot = hostName + "-" + server.getPort();
+    if (isSharedStorage()) {
+      log.info("{} using derived server slot {} for the shared storage.", Constants.LOG_ICON_NAME,
+          serverSlot);
+    }
+  }
+
+  public static PlayerRecordStorage create(StorageBackend storageBackend) {
+    switch (storageBackend) {
+      case APPEND_LOG:
+        return new AppendLogStorage(COMMON.storageLogCompactionRatio.get());
+      case JDBC:
+        return new JdbcStorage(COMMON.storageJdbcUrl.get(), isSharedStorage());
+      case NBT:
+      default:
+        return new NbtFileStorage();
+    }
+  }
+
+  /** Opens the configured storage and falls back to the NBT files, if it is not usable. */
+  public static PlayerRecordStorage open(Path directory) {
+    PlayerRecordStorage storage = createStorage(create(COMMON.storageBackend.get()));
+    try {
+      storage.open(directory);
+      log.info("{} using {} storage for player records in {}", Constants.LOG_ICON_NAME,
+          storage.getName(), directory);
+      return storage;
+    } catch (IOException exception) {
+      log.error("{} unable to open {} storage, falling back to NBT files: {}",
+          Constants.LOG_ICON_NAME, storage.getName(), exception);
+    }
+    PlayerRecordStorage fallbackStorage = createStorage(new NbtFileStorage());
+    try {
+      fallbackStorage.open(directory);
+    } catch (IOException exception) {
+      log.error("{} unable to open fallback storage in {}: {}", Constants.LOG_ICON_NAME,
+          directory, exception);
+    }
+    return fallbackStorage;
+  }
+
+  private static PlayerRecordStorage createStorage(PlayerRecordStorage storage) {
+    return isSharedStorage() ? new SharedPlayerRecordStorage(storage, getServerSlot()) : storage;
+  }
+
+}
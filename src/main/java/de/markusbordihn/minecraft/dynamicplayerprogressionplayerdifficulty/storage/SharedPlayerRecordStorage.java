@@ -0,0 +1,415 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.Constants;
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
+
+/**
+ * Shared storage for several server processes, which wraps another storage inside a shared
+ * directory. All access is guarded by a file lock. Each written record gets a new version, which is
+ * appended together with the player UUID to a shared journal. Recently used records are cached
+ * in-process and only cached records with a newer version inside the journal are dropped, so that
+ * most logins don't need to read the record.
+ *
+ * Each server writes only its own counters inside the server counters of the record. These counters
+ * are merged per server slot and field with max, like a grow-only counter, all other values are
+ * using last-writer-wins. Each server holds a lock on its own server slot, so that a server slot
+ * which is used by more than one server is reported.
+ *
+ * Lock file format: last record version, journal generation and committed journal size (3 x long).
+ * Journal entry format: player UUID (2 x long) and record version (long).
+ */
+public class SharedPlayerRecordStorage implements PlayerRecordStorage {
+
+  protected static final Logger log = LogManager.getLogger(Constants.LOG_NAME);
+
+  private static final String LOCK_FILE_NAME = "store.lock";
+  private static final String JOURNAL_FILE_NAME = "store.journal";
+  private static final String SLOT_DIRECTORY_NAME = "store.slots";
+  private static final String SLOT_FILE_EXTENSION = ".lock";
+  private static final int LOCK_HEADER_SIZE = Long.BYTES * 3;
+  private static final int JOURNAL_ENTRY_SIZE = Long.BYTES * 3;
+  private static final long MAX_JOURNAL_SIZE = JOURNAL_ENTRY_SIZE * 1000000L;
+  private static final int RECORD_CACHE_MAX_SIZE = 10000;
+  private static final int RECORD_CACHE_EXPIRE_MINUTES = 30;
+
+  private final PlayerRecordStorage storage;
+  private final String serverSlot;
+
+  // Recently used records, which are read again from the storage after they are evicted.
+  private final Cache<UUID, CachedRecord> recordCache =
+      CacheBuilder.newBuilder().maximumSize(RECORD_CACHE_MAX_SIZE)
+          .expireAfterAccess(RECORD_CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).build();
+
+  private FileChannel lockChannel;
+  private FileChannel journalChannel;
+  private FileChannel slotChannel;
+  private long journalGeneration = -1;
+  private long journalPosition = 0;
+  private long cacheHits = 0;
+  private long cacheMisses = 0;
+
+  public SharedPlayerRecordStorage(PlayerRecordStorage storage, String serverSlot) {
+    this.storage = storage;
+    this.serverSlot = serverSlot;
+  }
+
+  @Override
+  public String getName() {
+    return "Shared " + this.storage.getName();
+  }
+
+  @Override
+  public synchronized void open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE_NAME),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      try (FileLock fileLock = this.lockChannel.lock(0, Long.MAX_VALUE, true)) {
+        this.journalChannel = FileChannel.open(directory.resolve(JOURNAL_FILE_NAME),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.storage.open(directory);
+        StoreHeader storeHeader = readStoreHeader();
+        this.journalGeneration = storeHeader.journalGeneration;
+        this.journalPosition = storeHeader.journalSize;
+      }
+      lockServerSlot(directory);
+    } catch (IOException exception) {
+      close();
+      throw exception;
+    }
+  }
+
+  @Override
+  public synchronized CompoundTag load(UUID playerUUID) throws IOException {
+    try (FileLock fileLock = this.lockChannel.lock(0, Long.MAX_VALUE, true)) {
+      StoreHeader storeHeader = readStoreHeader();
+      readJournal(storeHeader);
+      CachedRecord cachedRecord = this.recordCache.getIfPresent(playerUUID);
+      if (cachedRecord != null) {
+        this.cacheHits++;
+        return cachedRecord.compoundTag.copy();
+      }
+      this.cacheMisses++;
+      CompoundTag storedRecord = this.storage.load(playerUUID);
+      if (storedRecord != null) {
+        // The stored record contains at least all changes up to the last record version.
+        this.recordCache.put(playerUUID,
+            new CachedRecord(storedRecord, storeHeader.recordVersion));
+        return storedRecord.copy();
+      }
+      return null;
+    }
+  }
+
+  @Override
+  public synchronized void save(Map<UUID, CompoundTag> records) throws IOException {
+    if (records.isEmpty()) {
+      return;
+    }
+    try (FileLock fileLock = this.lockChannel.lock(0, Long.MAX_VALUE, false)) {
+      StoreHeader storeHeader = readStoreHeader();
+      readJournal(storeHeader);
+
+      // Merge with the latest stored records, which could be written by other servers.
+      Map<UUID, CompoundTag> mergedRecords = new LinkedHashMap<>();
+      for (Map.Entry<UUID, CompoundTag> record : records.entrySet()) {
+        CachedRecord cachedRecord = this.recordCache.getIfPresent(record.getKey());
+        CompoundTag storedRecord = cachedRecord != null ? cachedRecord.compoundTag
+            : this.storage.load(record.getKey());
+        mergedRecords.put(record.getKey(), merge(storedRecord, record.getValue()));
+      }
+
+      // Start a new journal generation, if the journal gets too large.
+      long journalGenerationForWrite = storeHeader.journalGeneration;
+      long journalSize = storeHeader.journalSize;
+      if (journalSize + mergedRecords.size() * (long) JOURNAL_ENTRY_SIZE > MAX_JOURNAL_SIZE) {
+        this.journalChannel.truncate(0);
+        journalGenerationForWrite++;
+        journalSize = 0;
+      }
+
+      // Commit the new record versions first, a failed save only drops the records from the caches.
+      long recordVersion = storeHeader.recordVersion;
+      ByteBuffer journalBuffer = ByteBuffer.allocate(mergedRecords.size() * JOURNAL_ENTRY_SIZE);
+      List<CachedRecord> cachedRecords = new ArrayList<>(mergedRecords.size());
+      for (Map.Entry<UUID, CompoundTag> mergedRecord : mergedRecords.entrySet()) {
+        recordVersion++;
+        journalBuffer.putLong(mergedRecord.getKey().getMostSignificantBits());
+        journalBuffer.putLong(mergedRecord.getKey().getLeastSignificantBits());
+        journalBuffer.putLong(recordVersion);
+        cachedRecords.add(new CachedRecord(mergedRecord.getValue(), recordVersion));
+      }
+      journalBuffer.flip();
+      long position = journalSize;
+      while (journalBuffer.hasRemaining()) {
+        position += this.journalChannel.write(journalBuffer, position);
+      }
+      this.journalChannel.force(false);
+      writeStoreHeader(new StoreHeader(recordVersion, journalGenerationForWrite, position));
+      this.storage.save(mergedRecords);
+
+      this.journalGeneration = journalGenerationForWrite;
+      this.journalPosition = position;
+      int index = 0;
+      for (UUID playerUUID : mergedRecords.keySet()) {
+        this.recordCache.put(playerUUID, cachedRecords.get(index++));
+      }
+    }
+  }
+
+  @Override
+  public synchronized void refresh() throws IOException {
+    this.recordCache.invalidateAll();
+    this.storage.refresh();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    this.recordCache.invalidateAll();
+    try {
+      this.storage.close();
+    } finally {
+      if (this.journalChannel != null) {
+        this.journalChannel.close();
+        this.journalChannel = null;
+      }
+      if (this.slotChannel != null) {
+        this.slotChannel.close();
+        this.slotChannel = null;
+      }
+      if (this.lockChannel != null) {
+        this.lockChannel.close();
+        this.lockChannel = null;
+      }
+    }
+  }
+
+  public synchronized long getCacheHits() {
+    return this.cacheHits;
+  }
+
+  public synchronized long getCacheMisses() {
+    return this.cacheMisses;
+  }
+
+  /**
+   * Merges the incoming record into the stored record. The server counters are merged per server
+   * slot and field with max, all other values are replaced by the incoming record.
+   */
+  public static CompoundTag merge(CompoundTag storedRecord, CompoundTag incomingRecord) {
+    if (storedRecord == null || storedRecord.isEmpty()) {
+      return incomingRecord;
+    }
+    CompoundTag mergedRecord = storedRecord.copy();
+    for (String key : incomingRecord.getAllKeys()) {
+      if (!PlayerData.SERVER_COUNTERS_TAG.equals(key)) {
+        mergedRecord.put(key, incomingRecord.get(key).copy());
+      }
+    }
+
+    CompoundTag storedServerCounters = storedRecord.getCompound(PlayerData.SERVER_COUNTERS_TAG);
+    CompoundTag incomingServerCounters =
+        incomingRecord.getCompound(PlayerData.SERVER_COUNTERS_TAG);
+    CompoundTag mergedServerCounters = storedServerCounters.copy();
+    for (String serverSlot : incomingServerCounters.getAllKeys()) {
+      mergedServerCounters.put(serverSlot,
+          mergeCounters(storedServerCounters.getCompound(serverSlot),
+              incomingServerCounters.getCompound(serverSlot)));
+    }
+    if (!mergedServerCounters.isEmpty()) {
+      mergedRecord.put(PlayerData.SERVER_COUNTERS_TAG, mergedServerCounters);
+    }
+    return mergedRecord;
+  }
+
+  private static CompoundTag mergeCounters(CompoundTag storedCounters,
+      CompoundTag incomingCounters) {
+    CompoundTag mergedCounters = storedCounters.copy();
+    for (String key : incomingCounters.getAllKeys()) {
+      Tag incomingValue = incomingCounters.get(key);
+      if (incomingValue.getId() == Tag.TAG_INT) {
+        mergedCounters.putInt(key,
+            Math.max(storedCounters.getInt(key), incomingCounters.getInt(key)));
+      } else if (incomingValue.getId() == Tag.TAG_INT_ARRAY) {
+        int[] storedValues = storedCounters.getIntArray(key);
+        int[] incomingValues = incomingCounters.getIntArray(key);
+        int[] mergedValues = new int[Math.max(storedValues.length, incomingValues.length)];
+        for (int index = 0; index < mergedValues.length; index++) {
+          mergedValues[index] = Math.max(index < storedValues.length ? storedValues[index] : 0,
+              index < incomingValues.length ? incomingValues[index] : 0);
+        }
+        mergedCounters.putIntArray(key, mergedValues);
+      } else {
+        mergedCounters.put(key, incomingValue.copy());
+      }
+    }
+    return mergedCounters;
+  }
+
+  /**
+   * Reads the journal entries of other processes since the last read and drops only the cached
+   * records with a newer version. A new journal generation drops the whole cache.
+   */
+  private void readJournal(StoreHeader storeHeader) throws IOException {
+    if (storeHeader.journalGeneration != this.journalGeneration
+        || storeHeader.journalSize < this.journalPosition
+        || storeHeader.journalSize > this.journalChannel.size()) {
+      log.debug("{} shared store journal generation changed from {} to {}, refreshing cache.",
+          Constants.LOG_ICON_NAME, this.journalGeneration, storeHeader.journalGeneration);
+      refresh();
+      this.journalGeneration = storeHeader.journalGeneration;
+      this.journalPosition = storeHeader.journalSize;
+      return;
+    }
+    if (storeHeader.journalSize == this.journalPosition) {
+      return;
+    }
+
+    ByteBuffer journalBuffer =
+        ByteBuffer.allocate((int) (storeHeader.journalSize - this.journalPosition));
+    readFully(this.journalChannel, journalBuffer, this.journalPosition);
+    journalBuffer.flip();
+    int changedRecords = 0;
+    while (journalBuffer.remaining() >= JOURNAL_ENTRY_SIZE) {
+      UUID playerUUID = new UUID(journalBuffer.getLong(), journalBuffer.getLong());
+      long recordVersion = journalBuffer.getLong();
+      CachedRecord cachedRecord = this.recordCache.getIfPresent(playerUUID);
+      if (cachedRecord != null && cachedRecord.recordVersion < recordVersion) {
+        this.recordCache.invalidate(playerUUID);
+      }
+      changedRecords++;
+    }
+    this.journalPosition = storeHeader.journalSize;
+
+    // Let the storage pick up the records of the other processes, e.g. new log entries.
+    log.debug("{} shared store contains {} changed records from other servers.",
+        Constants.LOG_ICON_NAME, changedRecords);
+    this.storage.refresh();
+  }
+
+  /**
+   * Locks the server slot until the storage is closed. The counters of a server slot which is used
+   * by several servers are overwriting each other, so this is reported as error.
+   */
+  private void lockServerSlot(Path directory) throws IOException {
+    Path slotDirectory = directory.resolve(SLOT_DIRECTORY_NAME);
+    Files.createDirectories(slotDirectory);
+    String slotFileName = this.serverSlot.replaceAll("[^A-Za-z0-9._-]", "_") + SLOT_FILE_EXTENSION;
+    this.slotChannel = FileChannel.open(slotDirectory.resolve(slotFileName),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock slotLock;
+    try {
+      slotLock = this.slotChannel.tryLock();
+    } catch (OverlappingFileLockException exception) {
+      slotLock = null;
+    }
+    if (slotLock == null) {
+      log.error(
+          "{} server slot {} of the shared storage {} is already used by another server, please "
+              + "configure a unique storageServerSlot for each server!",
+          Constants.LOG_ICON_NAME, this.serverSlot, directory);
+    }
+  }
+
+  private StoreHeader readStoreHeader() throws IOException {
+    if (this.lockChannel.size() < LOCK_HEADER_SIZE) {
+      return new StoreHeader(0, 0, 0);
+    }
+    ByteBuffer headerBuffer = ByteBuffer.allocate(LOCK_HEADER_SIZE);
+    readFully(this.lockChannel, headerBuffer, 0);
+    headerBuffer.flip();
+    return new StoreHeader(headerBuffer.getLong(), headerBuffer.getLong(),
+        headerBuffer.getLong());
+  }
+
+  private void writeStoreHeader(StoreHeader storeHeader) throws IOException {
+    ByteBuffer headerBuffer = ByteBuffer.allocate(LOCK_HEADER_SIZE);
+    headerBuffer.putLong(storeHeader.recordVersion);
+    headerBuffer.putLong(storeHeader.journalGeneration);
+    headerBuffer.putLong(storeHeader.journalSize);
+    headerBuffer.flip();
+    long position = 0;
+    while (headerBuffer.hasRemaining()) {
+      position += this.lockChannel.write(headerBuffer, position);
+    }
+    this.lockChannel.force(false);
+  }
+
+  private static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position)
+      throws IOException {
+    long readPosition = position;
+    while (buffer.hasRemaining()) {
+      int read = fileChannel.read(buffer, readPosition);
+      if (read < 0) {
+        throw new IOException("Unexpected end of shared store file at " + readPosition);
+      }
+      readPosition += read;
+    }
+  }
+
+  private static class StoreHeader {
+    private final long recordVersion;
+    private final long journalGeneration;
+    private final long journalSize;
+
+    private StoreHeader(long recordVersion, long journalGeneration, long journalSize) {
+      this.recordVersion = recordVersion;
+      this.journalGeneration = journalGeneration;
+      this.journalSize = journalSize;
+    }
+  }
+
+  private static class CachedRecord {
+    private final CompoundTag compoundTag;
+    private final long recordVersion;
+
+    private CachedRecord(CompoundTag compoundTag, long recordVersion) {
+      this.compoundTag = compoundTag;
+      this.recordVersion = recordVersion;
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraft.nbt.CompoundTag;
+
+class AppendLogStorageTest {
+
+  private static final String LOG_FILE_NAME = "players.log";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void loadReturnsLatestRecordAfterReopen() throws IOException {
+    UUID playerUUID = UUID.randomUUID();
+    AppendLogStorage storage = openStorage();
+    storage.save(Map.of(playerUUID, createRecord(1)));
+    storage.save(Map.of(playerUUID, createRecord(2)));
+    storage.close();
+
+    storage = openStorage();
+    assertEquals(createRecord(2), storage.load(playerUUID));
+    assertNull(storage.load(UUID.randomUUID()));
+    storage.close();
+  }
+
+  @Test
+  void compactionKeepsLatestRecordPerPlayer() throws IOException {
+    Map<UUID, Integer> latestValues = new LinkedHashMap<>();
+    for (int player = 0; player < 10; player++) {
+      latestValues.put(UUID.randomUUID(), 0);
+    }
+
+    // 100 batches with 10 players are exceeding the min. entries and the compaction ratio.
+    AppendLogStorage storage = openStorage();
+    for (int batch = 1; batch <= 100; batch++) {
+      Map<UUID, CompoundTag> records = new LinkedHashMap<>();
+      for (UUID playerUUID : latestValues.keySet()) {
+        latestValues.put(playerUUID, batch);
+        records.put(playerUUID, createRecord(batch));
+      }
+      storage.save(records);
+    }
+    assertEquals(1, storage.getNumberOfCompactions());
+    for (Map.Entry<UUID, Integer> latestValue : latestValues.entrySet()) {
+      assertEquals(createRecord(latestValue.getValue()), storage.load(latestValue.getKey()));
+    }
+    storage.close();
+
+    // The compacted log is replacing the former log.
+    storage = openStorage();
+    for (Map.Entry<UUID, Integer> latestValue : latestValues.entrySet()) {
+      assertEquals(createRecord(latestValue.getValue()), storage.load(latestValue.getKey()));
+    }
+    storage.close();
+  }
+
+  @Test
+  void incompleteLastEntryIsTruncated() throws IOException {
+    UUID playerUUID = UUID.randomUUID();
+    AppendLogStorage storage = openStorage();
+    storage.save(Map.of(playerUUID, createRecord(1)));
+    storage.close();
+    Path logFile = this.directory.resolve(LOG_FILE_NAME);
+    long logSize = Files.size(logFile);
+
+    // Simulate a crash during the append with a complete header but only a part of the record.
+    UUID tornPlayerUUID = UUID.randomUUID();
+    byte[] tornEntry = new byte[Long.BYTES * 2 + Integer.BYTES + 10];
+    ByteBuffer.wrap(tornEntry).putLong(tornPlayerUUID.getMostSignificantBits())
+        .putLong(tornPlayerUUID.getLeastSignificantBits()).putInt(1000);
+    Files.write(logFile, tornEntry, StandardOpenOption.APPEND);
+
+    storage = openStorage();
+    assertEquals(logSize, Files.size(logFile));
+    assertEquals(createRecord(1), storage.load(playerUUID));
+    assertNull(storage.load(tornPlayerUUID));
+
+    // New entries are appended after the last complete entry.
+    storage.save(Map.of(tornPlayerUUID, createRecord(2)));
+    storage.close();
+    storage = openStorage();
+    assertEquals(createRecord(1), storage.load(playerUUID));
+    assertEquals(createRecord(2), storage.load(tornPlayerUUID));
+    storage.close();
+  }
+
+  @Test
+  void refreshIndexesEntriesOfOtherProcesses() throws IOException {
+    UUID playerUUID = UUID.randomUUID();
+    AppendLogStorage storage = openStorage();
+    AppendLogStorage otherStorage = openStorage();
+    storage.save(Map.of(playerUUID, createRecord(1)));
+    assertNull(otherStorage.load(playerUUID));
+
+    otherStorage.refresh();
+    assertEquals(createRecord(1), otherStorage.load(playerUUID));
+    storage.close();
+    otherStorage.close();
+  }
+
+  private AppendLogStorage openStorage() throws IOException {
+    AppendLogStorage storage = new AppendLogStorage(2);
+    storage.open(this.directory);
+    return storage;
+  }
+
+  private static CompoundTag createRecord(int value) {
+    CompoundTag compoundTag = new CompoundTag();
+    compoundTag.putInt("Value", value);
+    return compoundTag;
+  }
+
+}
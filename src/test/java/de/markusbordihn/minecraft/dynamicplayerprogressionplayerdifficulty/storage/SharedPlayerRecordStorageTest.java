@@ -0,0 +1,158 @@
+/**
+ * Copyright 2022 Markus Bordihn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.minecraft.nbt.CompoundTag;
+
+import de.markusbordihn.minecraft.dynamicplayerprogressionplayerdifficulty.data.PlayerData;
+
+class SharedPlayerRecordStorageTest {
+
+  private static final String LOCK_FILE_NAME = "store.lock";
+  private static final String JOURNAL_FILE_NAME = "store.journal";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void mergeUsesMaxForServerCountersAndIncomingForOtherValues() {
+    CompoundTag storedRecord = createRecord("stored", "server1", 5, new int[] {1, 7});
+    storedRecord.getCompound(PlayerData.SERVER_COUNTERS_TAG).put("server2",
+        createCounters(3, new int[] {2}));
+    CompoundTag incomingRecord = createRecord("incoming", "server1", 4, new int[] {3, 6, 1});
+
+    CompoundTag mergedRecord = SharedPlayerRecordStorage.merge(storedRecord, incomingRecord);
+    assertEquals("incoming", mergedRecord.getString(PlayerData.NAME_TAG));
+    CompoundTag mergedServerCounters = mergedRecord.getCompound(PlayerData.SERVER_COUNTERS_TAG);
+    CompoundTag server1Counters = mergedServerCounters.getCompound("server1");
+    assertEquals(5, server1Counters.getInt(PlayerData.KILLS_MOB_TAG));
+    assertArrayEquals(new int[] {3, 7, 1},
+        server1Counters.getIntArray(PlayerData.WEAPON_CLASS_USAGE_TAG));
+    assertEquals(createCounters(3, new int[] {2}), mergedServerCounters.getCompound("server2"));
+  }
+
+  @Test
+  void mergeWithoutStoredRecordReturnsIncomingRecord() {
+    CompoundTag incomingRecord = createRecord("incoming", "server1", 1, new int[] {1});
+    assertSame(incomingRecord, SharedPlayerRecordStorage.merge(null, incomingRecord));
+    assertSame(incomingRecord, SharedPlayerRecordStorage.merge(new CompoundTag(), incomingRecord));
+  }
+
+  @Test
+  void saveMergesCountersOfAllServers() throws IOException {
+    UUID playerUUID = UUID.randomUUID();
+    SharedPlayerRecordStorage storage = openStorage();
+    SharedPlayerRecordStorage otherStorage = openStorage();
+    storage.save(Map.of(playerUUID, createRecord("first", "server1", 5, new int[] {1})));
+    otherStorage.save(Map.of(playerUUID, createRecord("second", "server2", 3, new int[] {2})));
+
+    // An outdated counter of the first server is not replacing the higher stored counter.
+    storage.save(Map.of(playerUUID, createRecord("third", "server1", 4, new int[] {1})));
+
+    CompoundTag storedRecord = otherStorage.load(playerUUID);
+    assertEquals("third", storedRecord.getString(PlayerData.NAME_TAG));
+    CompoundTag storedServerCounters = storedRecord.getCompound(PlayerData.SERVER_COUNTERS_TAG);
+    assertEquals(5, storedServerCounters.getCompound("server1").getInt(PlayerData.KILLS_MOB_TAG));
+    assertEquals(3, storedServerCounters.getCompound("server2").getInt(PlayerData.KILLS_MOB_TAG));
+    storage.close();
+    otherStorage.close();
+  }
+
+  @Test
+  void journalDropsOnlyChangedCachedRecords() throws IOException {
+    UUID playerUUID = UUID.randomUUID();
+    UUID otherPlayerUUID = UUID.randomUUID();
+    SharedPlayerRecordStorage storage = openStorage();
+    SharedPlayerRecordStorage otherStorage = openStorage();
+    storage.save(Map.of(playerUUID, createRecord("first", "server1", 1, new int[] {1}),
+        otherPlayerUUID, createRecord("other", "server1", 1, new int[] {1})));
+    assertEquals("first", otherStorage.load(playerUUID).getString(PlayerData.NAME_TAG));
+    assertEquals("other", otherStorage.load(otherPlayerUUID).getString(PlayerData.NAME_TAG));
+    assertEquals(2, otherStorage.getCacheMisses());
+
+    // Only the changed record is read again, the other record is still served from the cache.
+    storage.save(Map.of(playerUUID, createRecord("second", "server1", 2, new int[] {1})));
+    assertEquals("second", otherStorage.load(playerUUID).getString(PlayerData.NAME_TAG));
+    assertEquals("other", otherStorage.load(otherPlayerUUID).getString(PlayerData.NAME_TAG));
+    assertEquals(3, otherStorage.getCacheMisses());
+    assertEquals(1, otherStorage.getCacheHits());
+    storage.close();
+    otherStorage.close();
+  }
+
+  @Test
+  void newJournalGenerationDropsWholeCache() throws IOException {
+    UUID playerUUID = UUID.randomUUID();
+    SharedPlayerRecordStorage storage = openStorage();
+    storage.save(Map.of(playerUUID, createRecord("first", "server1", 1, new int[] {1})));
+    assertEquals("first", storage.load(playerUUID).getString(PlayerData.NAME_TAG));
+
+    // Another process started a new journal generation after it wrote the record.
+    NbtFileStorage otherStorage = new NbtFileStorage();
+    otherStorage.open(this.directory);
+    otherStorage.save(Map.of(playerUUID, createRecord("second", "server2", 1, new int[] {1})));
+    Files.write(this.directory.resolve(JOURNAL_FILE_NAME), new byte[0]);
+    ByteBuffer storeHeader = ByteBuffer.allocate(Long.BYTES * 3);
+    storeHeader.putLong(2).putLong(1).putLong(0);
+    Files.write(this.directory.resolve(LOCK_FILE_NAME), storeHeader.array());
+
+    assertEquals("second", storage.load(playerUUID).getString(PlayerData.NAME_TAG));
+    storage.close();
+  }
+
+  private SharedPlayerRecordStorage openStorage() throws IOException {
+    SharedPlayerRecordStorage storage =
+        new SharedPlayerRecordStorage(new NbtFileStorage(), "test-" + UUID.randomUUID());
+    storage.open(this.directory);
+    return storage;
+  }
+
+  private static CompoundTag createRecord(String name, String serverSlot, int mobKills,
+      int[] weaponClassUsage) {
+    CompoundTag compoundTag = new CompoundTag();
+    compoundTag.putString(PlayerData.NAME_TAG, name);
+    CompoundTag serverCountersTag = new CompoundTag();
+    serverCountersTag.put(serverSlot, createCounters(mobKills, weaponClassUsage));
+    compoundTag.put(PlayerData.SERVER_COUNTERS_TAG, serverCountersTag);
+    return compoundTag;
+  }
+
+  private static CompoundTag createCounters(int mobKills, int[] weaponClassUsage) {
+    CompoundTag countersTag = new CompoundTag();
+    countersTag.putInt(PlayerData.KILLS_MOB_TAG, mobKills);
+    countersTag.putIntArray(PlayerData.WEAPON_CLASS_USAGE_TAG, weaponClassUsage);
+    return countersTag;
+  }
+
+}